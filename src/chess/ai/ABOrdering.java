@@ -2,11 +2,8 @@ package chess.ai;
 
 import chess.core.Chessboard;
 import chess.core.Move;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
+import chess.core.MovePicker;
+import chess.core.SearchBoard;
 
 /**
  * Created by Hoa Dam on 9/22/2015.
@@ -15,58 +12,50 @@ public class ABOrdering extends Searcher{
     @Override
 	public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth) {
 		setup(board, eval, depth);
-		MoveScore result = evalMoves(board, eval, depth,-eval.maxValue(),eval.maxValue());
+		MoveScore result = evalMoves(startFrom(board), eval, depth,-eval.maxValue(),eval.maxValue());
 		tearDown();
 		return result;
 	}
 
-	MoveScore evalMoves(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
+	MoveScore evalMoves(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		Chessboard board = position.getBoard();
 		MoveScore best = null;
-		List<Move> moveList = board.getLegalMoves();
-		PriorityQueue<MyMoveScore> moveOrder = new PriorityQueue<>(moveList.size(), new MoveScoreComparator());
-		for (Move m : board.getLegalMoves()){
-			Chessboard next= generate(board, m);
-			MyMoveScore score = new MyMoveScore(evaluate(next, eval),m,next);
-			moveOrder.add(score);
-		}
-
-		while (!moveOrder.isEmpty()){
-			MyMoveScore m = moveOrder.poll();
-			MoveScore result = new MoveScore(-evalBoard(m.getBoard(), eval, depth - 1, -beta, -alpha), m.getMove());
+		MovePicker picker = pickMoves(position, depth);
+		for (Move m = picker.next(); m != null; m = picker.next()){
+			if (!tryMake(position, m)) {continue;}
+			MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1, -beta, -alpha), m);
+			unmake(position);
 			if(alpha < result.getScore()) {
 				alpha = result.getScore();
-				best = new MoveScore(alpha,m.getMove());
+				best = new MoveScore(alpha,m);
 			}
 			if(alpha >= beta){
+				cutoff(m, depth);
 				break;
 			}
 			if (best == null || best.getScore() < result.getScore()) best = result;
 		}
 
+		if (best != null) storeBest(board, best.getMove());
 		return best;
 		}
 
 
-	int evalBoard(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
-		if (  board.isCheckmate()) {
+	int evalBoard(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		if (  position.getBoard().isCheckmate()) {
 			return eval.maxValue();
 		}
+		if (position.isDraw()) {
+			return DRAW;
+		}
 		if (depth == 0) {
-			return evaluate(board, eval);
+			return evaluate(position.getBoard(), eval);
 		} else {
 
-			return evalMoves(board, eval, depth,alpha,beta).getScore();
+			return evalMoves(position, eval, depth,alpha,beta).getScore();
 		}
 	}
 
-	class MoveScoreComparator implements Comparator<MyMoveScore>{
-		@Override
-		public int compare(MyMoveScore x, MyMoveScore y) {
-			if(x.getScore() < y.getScore()) return -1;
-			if(x.getScore() > y.getScore()) return 1;
-			return 0;
-		}
-	}
 
 
 }
@@ -2,6 +2,7 @@ package chess.ai;
 
 import chess.core.Chessboard;
 import chess.core.Move;
+import chess.core.SearchBoard;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,16 +11,17 @@ public class ABQuiescene extends Searcher {
 	@Override
 	public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth) {
 		setup(board, eval, depth);
-		MoveScore result = evalMoves(board, eval, depth,-eval.maxValue(),eval.maxValue());
+		MoveScore result = evalMoves(startFrom(board), eval, depth,-eval.maxValue(),eval.maxValue());
 		tearDown();
 		return result;
 	}
 
-	MoveScore evalMoves(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
+	MoveScore evalMoves(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
 		MoveScore best = null;
-		for (Move m: board.getLegalMoves()) {
-			Chessboard next = generate(board, m);
-			MoveScore result = new MoveScore(-evalBoard(next, eval, depth - 1, -beta, -alpha), m);
+		for (Move m: position.getBoard().getLegalMoves()) {
+			make(position, m);
+			MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1, -beta, -alpha), m);
+			unmake(position);
 			if(alpha < result.getScore()) {
 				alpha = result.getScore();
 				best = new MoveScore(alpha,m);
@@ -35,16 +37,20 @@ public class ABQuiescene extends Searcher {
 
 	}	
 	
-	int evalBoard(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
-		if (  board.isCheckmate()) {
+	int evalBoard(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		if (  position.getBoard().isCheckmate()) {
 			return eval.maxValue();
 		}
-		if (depth == 0) return quiescene(board, eval, alpha, beta);
+		if (position.isDraw()) {
+			return DRAW;
+		}
+		if (depth == 0) return quiescene(position, eval, alpha, beta);
 		else {
-			return evalMoves(board, eval, depth,alpha,beta).getScore();
+			return evalMoves(position, eval, depth,alpha,beta).getScore();
 		}
 	}
-	int quiescene(Chessboard board, BoardEval eval, int alpha, int beta){
+	int quiescene(SearchBoard position, BoardEval eval, int alpha, int beta){
+		Chessboard board = position.getBoard();
 		int standingVal = evaluate(board, eval);
 		if (standingVal >= beta) return beta;
 		if (standingVal > alpha) alpha = standingVal;
@@ -54,8 +60,9 @@ public class ABQuiescene extends Searcher {
 		}
 		if (capturable.size() == 0 ) return alpha;
 		for (Move mv : capturable){
-			Chessboard next = generate(board, mv);
-			int score = quiescene(next, eval, -beta, -alpha);
+			make(position, mv);
+			int score = quiescene(position, eval, -beta, -alpha);
+			unmake(position);
 			if (score >= beta) return beta;
 			if (score > alpha) alpha = score;
 		}
@@ -2,45 +2,50 @@ package chess.ai;
 
 import chess.core.Chessboard;
 import chess.core.Move;
-import chess.gui.Chess;
-
-import java.util.ArrayList;
-import java.util.List;
+import chess.core.MovePicker;
+import chess.core.SearchBoard;
 
 public class AlphaBeta extends Searcher {
 	@Override
 	public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth) {
 		setup(board, eval, depth);
-		MoveScore result = evalMoves(board, eval, depth,-eval.maxValue(),eval.maxValue());
+		MoveScore result = evalMoves(startFrom(board), eval, depth,-eval.maxValue(),eval.maxValue());
 		tearDown();
 		return result;
 	}
 
-	MoveScore evalMoves(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
+	MoveScore evalMoves(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
 		MoveScore best = null;
-		for (Move m: board.getLegalMoves()) {
-			Chessboard next = generate(board, m);
-			MoveScore result = new MoveScore(-evalBoard(next, eval, depth - 1, -beta, -alpha), m);
+		Chessboard board = position.getBoard();
+		MovePicker picker = pickMoves(position, depth);
+		for (Move m = picker.next(); m != null; m = picker.next()) {
+			if (!tryMake(position, m)) {continue;}
+			MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1, -beta, -alpha), m);
+			unmake(position);
 			if(alpha < result.getScore()) {
 				alpha = result.getScore();
 				best = new MoveScore(alpha,m);
 			}
 			if(alpha >= beta){
+				cutoff(m, depth);
 				break;
 			}
 			if (best == null || best.getScore() < result.getScore()) best = result;
 		}
 
+		if (best != null) storeBest(board, best.getMove());
 		return best;
 
 	}	
 	
-	int evalBoard(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
-		if (depth == 0) {
-			return evaluate(board, eval);
+	int evalBoard(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		if (position.isDraw()) {
+			return DRAW;
+		} else if (depth == 0) {
+			return evaluate(position.getBoard(), eval);
 		} else {
 
-			return evalMoves(board, eval, depth,alpha,beta).getScore();
+			return evalMoves(position, eval, depth,alpha,beta).getScore();
 		}
 	}
 
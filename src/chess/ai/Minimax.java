@@ -2,22 +2,24 @@ package chess.ai;
 
 import chess.core.Chessboard;
 import chess.core.Move;
+import chess.core.SearchBoard;
 
 public class Minimax extends Searcher {
 	
 	@Override
 	public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth) {
 		setup(board, eval, depth);
-		MoveScore result = evalMoves(board, eval, depth);
+		MoveScore result = evalMoves(startFrom(board), eval, depth);
 		tearDown();
 		return result;
 	}
 	
-	MoveScore evalMoves(Chessboard board, BoardEval eval, int depth) {
+	MoveScore evalMoves(SearchBoard position, BoardEval eval, int depth) {
 		MoveScore best = null;
-		for (Move m: board.getLegalMoves()) {
-			Chessboard next = generate(board, m);
-			MoveScore result = new MoveScore(-evalBoard(next, eval, depth - 1), m);
+		for (Move m: position.getBoard().getLegalMoves()) {
+			make(position, m);
+			MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1), m);
+			unmake(position);
 			if (best == null || result.getScore() > best.getScore()) {
 				best = result;
 			}
@@ -25,15 +27,16 @@ public class Minimax extends Searcher {
 		return best;
 	}	
 	
-	int evalBoard(Chessboard board, BoardEval eval, int depth) {
+	int evalBoard(SearchBoard position, BoardEval eval, int depth) {
+		Chessboard board = position.getBoard();
 		if (!board.hasKing(board.getMoverColor()) || board.isCheckmate()) {
 			return -eval.maxValue();
-		} else if (board.isStalemate()) {
-			return 0;
+		} else if (board.isStalemate() || position.isDraw()) {
+			return DRAW;
 		} else if (depth == 0) {
 			return evaluate(board, eval);
 		} else {
-			return evalMoves(board, eval, depth).getScore();
+			return evalMoves(position, eval, depth).getScore();
 		}
 	}
 }
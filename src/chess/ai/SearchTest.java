@@ -6,6 +6,7 @@ import org.junit.*;
 
 import chess.core.Algebraic;
 import chess.core.Chessboard;
+import chess.core.FEN;
 import chess.core.IllegalMoveException;
 import chess.core.Move;
 
@@ -17,6 +18,26 @@ public class SearchTest {
 		testBasicMate(new AlphaBeta());
 	}
 
+	@Test
+	public void scoresDraws() {
+		Chessboard board = FEN.decode("8/8/4k3/8/8/2B5/8/4K3 w - - 0 1");
+		for (Searcher s: new Searcher[]{new Minimax(), new AlphaBeta(), new ABOrdering(), new TheWholeShebang()}) {
+			assertEquals(Searcher.DRAW, s.findBestMove(board, new BasicMaterial(), 3).getScore());
+		}
+	}
+	
+	@Test
+	public void pseudoLegalAgrees() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O", "Be7");
+		for (Searcher s: new Searcher[]{new AlphaBeta(), new ABOrdering()}) {
+			MoveScore legal = s.findBestMove(board, new BasicMaterial(), 3);
+			s.setPseudoLegal(true);
+			MoveScore pseudo = s.findBestMove(board, new BasicMaterial(), 3);
+			assertEquals(legal.getMove(), pseudo.getMove());
+			assertEquals(legal.getScore(), pseudo.getScore());
+		}
+	}
+	
 	public void testBasicMate(Searcher s) throws IllegalMoveException {
 		BoardEval eval = new BasicMaterial();
 		
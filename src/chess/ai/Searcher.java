@@ -1,27 +1,127 @@
 package chess.ai;
 
 import chess.core.Chessboard;
+import chess.core.GameHistory;
 import chess.core.Move;
+import chess.core.MovePicker;
+import chess.core.SearchBoard;
 
 abstract public class Searcher {
+	private final static int BEST_MOVE_BITS = 14;
+	private final static Move[] NO_KILLERS = new Move[0];
+	final static int DRAW = 0;
+	
 	private int movesApplied, evalCalls;
 	private long start, duration;
+	
+	// Move ordering: two killer moves per depth, and the best move last found
+	// for a position, in a table indexed by the low bits of its Zobrist key.
+	private Move[][] killers;
+	private long[] bestMoveKeys;
+	private Move[] bestMoves;
+	
+	// One picker per ply of the SearchBoard being searched, on that ply's move buffer
+	private SearchBoard searched;
+	private MovePicker[] pickers;
+	
+	// Whether pickMoves() leaves king safety to tryMake(). Off by default:
+	// hash and killer moves are already checked without generating
+	// anything, and measured searches were no faster with it on.
+	private boolean pseudoLegal = false;
+	
+	// The game being searched, if any, so that repeating its earlier positions scores as a draw
+	private GameHistory game;
 
 	abstract public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth);
 	
+	public MoveScore findBestMove(GameHistory game, BoardEval eval, int depth) {
+		this.game = game;
+		MoveScore result = findBestMove(game.getBoard(), eval, depth);
+		this.game = null;
+		return result;
+	}
+	
+	SearchBoard startFrom(Chessboard board) {
+		GameHistory start = game != null && game.getBoard() == board ? game : new GameHistory(board);
+		return new SearchBoard(start, pseudoLegal);
+	}
+	
 	int evaluate(Chessboard board, BoardEval eval) {
 		evalCalls += 1;
 		return eval.eval(board);
 	}
 	
-	Chessboard generate(Chessboard parent, Move m) {
+	void make(SearchBoard position, Move m) {
+		movesApplied += 1;
+		position.makeMove(m);
+	}
+	
+	// For moves from pickMoves(): plays m unless it leaves the mover's king
+	// attacked, which only pseudo-legal moves can do.
+	boolean tryMake(SearchBoard position, Move m) {
+		boolean test = pseudoLegal && position.getBoard().mayExposeKing(m);
+		position.makeMove(m);
+		if (test && position.getBoard().opponentInCheck()) {
+			position.unmakeMove();
+			return false;
+		}
 		movesApplied += 1;
-		return parent.successor(m);
+		return true;
+	}
+	
+	void unmake(SearchBoard position) {
+		position.unmakeMove();
+	}
+	
+	MovePicker pickMoves(SearchBoard position, int depth) {
+		Chessboard board = position.getBoard();
+		Move[] killersAt = depth < killers.length ? killers[depth] : NO_KILLERS;
+		MovePicker picker = pickerAt(position);
+		picker.reset(board, hashMove(board), killersAt);
+		return picker;
+	}
+	
+	private MovePicker pickerAt(SearchBoard position) {
+		if (position != searched) {
+			searched = position;
+			pickers = new MovePicker[16];
+		}
+		int ply = position.getPly();
+		if (ply >= pickers.length) {
+			MovePicker[] bigger = new MovePicker[pickers.length * 2];
+			System.arraycopy(pickers, 0, bigger, 0, pickers.length);
+			pickers = bigger;
+		}
+		if (pickers[ply] == null) {
+			pickers[ply] = new MovePicker(position.getMoves(), position.getMoveMap());
+		}
+		return pickers[ply];
+	}
+	
+	void cutoff(Move m, int depth) {
+		if (!m.captures() && depth < killers.length && !m.equals(killers[depth][0])) {
+			killers[depth][1] = killers[depth][0];
+			killers[depth][0] = m;
+		}
+	}
+	
+	Move hashMove(Chessboard board) {
+		int slot = (int)board.getZobristKey() & (bestMoves.length - 1);
+		return bestMoveKeys[slot] == board.getZobristKey() ? bestMoves[slot] : null;
+	}
+	
+	void storeBest(Chessboard board, Move m) {
+		int slot = (int)board.getZobristKey() & (bestMoves.length - 1);
+		bestMoveKeys[slot] = board.getZobristKey();
+		bestMoves[slot] = m;
 	}
 	
 	void setup(Chessboard board, BoardEval eval, int depth) {
 		movesApplied = 0;
 		evalCalls = 0;
+		killers = new Move[depth + 1][2];
+		bestMoveKeys = new long[1 << BEST_MOVE_BITS];
+		bestMoves = new Move[1 << BEST_MOVE_BITS];
 		start = System.currentTimeMillis();		
 	}
 	
@@ -29,6 +129,10 @@ abstract public class Searcher {
 		duration = System.currentTimeMillis() - start;		
 	}
 
+	public void setPseudoLegal(boolean pseudoLegal) {
+		this.pseudoLegal = pseudoLegal;
+	}
+
 	public int getBoardsGenerated() {
 		return movesApplied;
 	}
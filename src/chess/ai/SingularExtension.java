@@ -2,6 +2,7 @@ package chess.ai;
 
 import chess.core.Chessboard;
 import chess.core.Move;
+import chess.core.SearchBoard;
 
 import java.util.ArrayList;
 
@@ -9,19 +10,21 @@ public class SingularExtension extends Searcher {
 	@Override
 	public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth) {
 		setup(board, eval, depth);
-		MoveScore result = evalMoves(board, eval, depth,-eval.maxValue(),eval.maxValue());
+		MoveScore result = evalMoves(startFrom(board), eval, depth,-eval.maxValue(),eval.maxValue());
 		tearDown();
 		return result;
 	}
 
-	MoveScore evalMoves(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
+	MoveScore evalMoves(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		Chessboard board = position.getBoard();
 		MoveScore best = null;
         double average = 0;
         double stdev = 0;
         ArrayList<Double> scores = new ArrayList<>();
         for (Move m: board.getLegalMoves()) {
-            Chessboard next = generate(board, m);
-            MoveScore result = new MoveScore(-evalBoard(next, eval, depth - 1, -beta, -alpha), m);
+            make(position, m);
+            MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1, -beta, -alpha), m);
+            unmake(position);
             average += result.getScore();
             scores.add((double)result.getScore());
         }
@@ -34,8 +37,9 @@ public class SingularExtension extends Searcher {
         stdev = Math.sqrt(stdev);
 
 		for (Move m: board.getLegalMoves()) {
-			Chessboard next = generate(board, m);
-			MoveScore result = new MoveScore(-evalBoard(next, eval, depth - 1, -beta, -alpha), m);
+			make(position, m);
+			MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1, -beta, -alpha), m);
+			unmake(position);
 			if(alpha < result.getScore()) {
 				alpha = result.getScore();
 				best = new MoveScore(alpha,m);
@@ -45,18 +49,26 @@ public class SingularExtension extends Searcher {
 				break;
 			}
 		}
-        if (best != null && best.getScore() > average + (3 * stdev))
-            return new MoveScore(-evalBoard(generate(board, best.getMove()), eval, 1, -beta, -alpha),best.getMove());
+        if (best != null && best.getScore() > average + (3 * stdev)) {
+            make(position, best.getMove());
+            MoveScore extended = new MoveScore(-evalBoard(position, eval, 1, -beta, -alpha),best.getMove());
+            unmake(position);
+            return extended;
+        }
 
         return best;
 
 
 	}	
 	
-	int evalBoard(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
+	int evalBoard(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		Chessboard board = position.getBoard();
         if (board.getLegalMoves().size() == 0 || board.isCheckmate()) {
                 return -eval.maxValue();
         }
+		if (position.isDraw()) {
+			return DRAW;
+		}
 		if (depth == 0) {
 			return evaluate(board, eval);
 		} else {
@@ -64,7 +76,7 @@ public class SingularExtension extends Searcher {
                 System.out.println(board.toString());
                 return -eval.maxValue();
             }
-			return evalMoves(board, eval, depth,alpha,beta).getScore();
+			return evalMoves(position, eval, depth,alpha,beta).getScore();
 		}
 	}
 
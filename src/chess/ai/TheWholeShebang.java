@@ -2,63 +2,62 @@ package chess.ai;
 
 import chess.core.Chessboard;
 import chess.core.Move;
+import chess.core.MovePicker;
+import chess.core.SearchBoard;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 
 public class TheWholeShebang extends Searcher {
     @Override
 	public MoveScore findBestMove(Chessboard board, BoardEval eval, int depth) {
 		setup(board, eval, depth);
-		MoveScore result = evalMoves(board, eval, depth,-eval.maxValue(),eval.maxValue());
+		MoveScore result = evalMoves(startFrom(board), eval, depth,-eval.maxValue(),eval.maxValue());
 		tearDown();
 		return result;
 	}
 
-	MoveScore evalMoves(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
+	MoveScore evalMoves(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		Chessboard board = position.getBoard();
 		MoveScore best = null;
-		if(board.getLegalMoves().size() > 0) {
-			List<Move> moveList = board.getLegalMoves();
-			PriorityQueue<MyMoveScore> moveOrder = new PriorityQueue<>(moveList.size(), new MoveScoreComparator());
-			for (Move m : board.getLegalMoves()) {
-				Chessboard next = generate(board, m);
-				MyMoveScore score = new MyMoveScore(evaluate(next, eval), m, next);
-				moveOrder.add(score);
+		MovePicker picker = pickMoves(position, depth);
+		for (Move m = picker.next(); m != null; m = picker.next()) {
+			if (!tryMake(position, m)) {continue;}
+			MoveScore result = new MoveScore(-evalBoard(position, eval, depth - 1, -beta, -alpha), m);
+			unmake(position);
+			if (alpha < result.getScore()) {
+				alpha = result.getScore();
+				best = new MoveScore(alpha, m);
 			}
-
-			while (!moveOrder.isEmpty()) {
-				MyMoveScore m = moveOrder.poll();
-				MoveScore result = new MoveScore(-evalBoard(m.getBoard(), eval, depth - 1, -beta, -alpha), m.getMove());
-				if (alpha < result.getScore()) {
-					alpha = result.getScore();
-					best = new MoveScore(alpha, m.getMove());
-				}
-				if (alpha >= beta) {
-					break;
-				}
-				if (best == null || best.getScore() < result.getScore()) best = result;
+			if (alpha >= beta) {
+				cutoff(m, depth);
+				break;
 			}
+			if (best == null || best.getScore() < result.getScore()) best = result;
 		}
+		if (best != null) storeBest(board, best.getMove());
 		return best;
 		}
 
 
 
-	int evalBoard(Chessboard board, BoardEval eval, int depth, int alpha, int beta) {
-		if (  board.isCheckmate()) {
+	int evalBoard(SearchBoard position, BoardEval eval, int depth, int alpha, int beta) {
+		if (  position.getBoard().isCheckmate()) {
 			return eval.maxValue();
 		}
-		if (depth == 0) return quiescene(board, eval, alpha, beta);
+		if (position.isDraw()) {
+			return DRAW;
+		}
+		if (depth == 0) return quiescene(position, eval, alpha, beta);
 		else {
-			MoveScore best = evalMoves(board, eval, depth, alpha, beta);
+			MoveScore best = evalMoves(position, eval, depth, alpha, beta);
 			if(best != null )return best.getScore();
-			return evaluate(board, eval);
+			return evaluate(position.getBoard(), eval);
 		}
 	}
-	int quiescene(Chessboard board, BoardEval eval, int alpha, int beta){
+	int quiescene(SearchBoard position, BoardEval eval, int alpha, int beta){
+		Chessboard board = position.getBoard();
 		if(board.isCheckmate()) {
 			int standingVal = evaluate(board, eval);
 			if (standingVal >= beta) return beta;
@@ -69,8 +68,9 @@ public class TheWholeShebang extends Searcher {
 			}
 			if (capturable.size() == 0) return alpha;
 			for (Move mv : capturable) {
-				Chessboard next = generate(board, mv);
-				int score = quiescene(next, eval, -beta, -alpha);
+				make(position, mv);
+				int score = quiescene(position, eval, -beta, -alpha);
+				unmake(position);
 				if (score >= beta) return beta;
 				if (score > alpha) alpha = score;
 			}
@@ -78,14 +78,6 @@ public class TheWholeShebang extends Searcher {
 		return beta;
 	}
 
-	class MoveScoreComparator implements Comparator<MyMoveScore> {
-		@Override
-		public int compare(MyMoveScore x, MyMoveScore y) {
-			if(x.getScore() < y.getScore()) return -1;
-			if(x.getScore() > y.getScore()) return 1;
-			return 0;
-		}
-	}
 
 
 }
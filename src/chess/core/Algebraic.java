@@ -6,6 +6,12 @@ import java.util.List;
 public class Algebraic {
 	
 	public static String encode(Move m, Chessboard board) {
+		return encode(m, board, board.getLegalMoves());
+	}
+	
+	// legal must be the legal moves of board; passing it in lets a caller
+	// encoding many moves share one list for disambiguation.
+	public static String encode(Move m, Chessboard board, List<Move> legal) {
 		String result = m.getStop().toString();
 		if (m.getPiece().equals(ChessPiece.PAWN)) {
 			if (m.captures()) {
@@ -24,33 +30,33 @@ public class Algebraic {
 			if (m.captures()) {
 				result = "x" + result;
 			}
-			ArrayList<Move> candidates = new ArrayList<Move>();
-			for (Move m2: board.getLegalMovesTo(m.getStop())) {
-				if (m2.getPiece().equals(m.getPiece())) {
-					candidates.add(m2);
+			boolean found = false, sameFile = false, sameRank = false;
+			int others = 0;
+			for (Move m2: legal) {
+				if (m2.getStop() == m.getStop() && m2.getPiece() == m.getPiece()) {
+					if (m2.getStart() == m.getStart()) {
+						found = true;
+					} else {
+						others += 1;
+						sameFile |= m2.getStart().file() == m.getStart().file();
+						sameRank |= m2.getStart().rankNum() == m.getStart().rankNum();
+					}
 				}
 			}
-			if (candidates.size() == 0) {
+			if (!found) {
 				throw new IllegalArgumentException("Impossible move " + m);
-			} else if (candidates.size() == 2) {
-				candidates.remove(m);
-				Move other = candidates.get(0);
-				if (m.getStart().file() == other.getStart().file()) {
-					result = m.getStart().rankNum() + result;
-				} else {
-					result = m.getStart().file() + result;
-				}
-			} else if (candidates.size() > 2) {
+			} else if (others > 0 && !sameFile) {
+				result = m.getStart().file() + result;
+			} else if (others > 0 && !sameRank) {
+				result = m.getStart().rankNum() + result;
+			} else if (others > 0) {
 				result = m.getStart() + result;
 			}
 			result = m.getPiece().symbol() + result;
 		}
 		
-		Chessboard board2 = board.successor(m);
-		if (board2.isCheckmate()) {
-			result += "#";
-		} else if (board2.moverInCheck()) {
-			result += "+";
+		if (givesCheck(m, board)) {
+			result += board.successor(m).gameInProgress() ? "+" : "#";
 		}
 		
 		return result;
@@ -60,11 +66,53 @@ public class Algebraic {
 		List<Move> moves = board.getLegalMoves();
 		ArrayList<String> result = new ArrayList<String>(moves.size());
 		for (Move m: moves) {
-			result.add(encode(m, board));
+			result.add(encode(m, board, moves));
 		}
 		return result;
 	}
 	
+	// Whether the legal move m attacks the enemy king, directly from its
+	// stop square or by uncovering a slider, worked out from attack tables
+	// on the occupancy after the move rather than from a successor board.
+	static boolean givesCheck(Move m, Chessboard board) {
+		MoveGenerator gen = MoveMap.moveMaker;
+		PieceColor mover = m.getColor();
+		long king = board.kingAt(mover.other()).getMask();
+		long moved = m.getStart().getMask();
+		long occupied = (board.occupancy() & ~moved) | m.getStop().getMask();
+		if (m.captures()) {
+			occupied &= ~m.getCapture().getMask() | m.getStop().getMask();
+		}
+		
+		ChessPiece piece = m.promotes() ? m.promotesTo() : m.getPiece();
+		int stop = m.getStop().ordinal();
+		if (m.isCastlingMove()) {
+			boolean east = m.getStop().fileNum() > m.getStart().fileNum();
+			long rook = MoveGenerator.getCastleRook(mover, east ? MoveDir.E : MoveDir.W).getMask();
+			stop = m.getStart().ordinal() + (east ? 1 : -1);
+			moved |= rook;
+			occupied = (occupied & ~rook) | (1L << stop);
+			piece = ChessPiece.ROOK;
+		}
+		
+		long direct;
+		switch (piece) {
+		case PAWN: direct = MoveGenerator.pawnAttacks(mover, stop); break;
+		case KNIGHT: direct = MoveGenerator.knightAttacks(stop); break;
+		case BISHOP: direct = gen.bishopAttacks(stop, occupied); break;
+		case ROOK: direct = gen.rookAttacks(stop, occupied); break;
+		case QUEEN: direct = gen.rookAttacks(stop, occupied) | gen.bishopAttacks(stop, occupied); break;
+		default: direct = 0;
+		}
+		if ((direct & king) != 0) {return true;}
+		
+		int kingSquare = Long.numberOfTrailingZeros(king);
+		long queens = board.bitsOf(mover, ChessPiece.QUEEN);
+		long rooks = (board.bitsOf(mover, ChessPiece.ROOK) | queens) & ~moved;
+		long bishops = (board.bitsOf(mover, ChessPiece.BISHOP) | queens) & ~moved;
+		return (gen.rookAttacks(kingSquare, occupied) & rooks) != 0 || (gen.bishopAttacks(kingSquare, occupied) & bishops) != 0;
+	}
+	
 	public static boolean isLegal(String move, Chessboard board) {
 		try {
 			decode(move, board);
@@ -74,26 +122,188 @@ public class Algebraic {
 		}
 	}
 	
+	// Parses the move into piece, disambiguating file and rank, capture,
+	// target and promotion, then looks only at the pieces of that kind that
+	// reach the target, checking each against the board's pins and checks.
+	// Castling and en passant fall back to generating the legal moves.
+	// Check marks and annotations (+, #, !, ?) are ignored; castling may be
+	// written with O or 0.
 	public static Move decode(String move, Chessboard board) throws IllegalMoveException {
-		for (Move m: board.getLegalMoves()) {
-			String encoded = encode(m, board);
-			if (move.equals(encoded)) {
-				return m;
-			} else if ((encoded.endsWith("#") || encoded.endsWith("+")) && 
-					move.equals(encoded.substring(0, encoded.length() - 1))) {
-				return m;
+		San san = new San(move);
+		if (san.castle != 0 || (san.piece == ChessPiece.PAWN && san.stop == board.getEnPassantSquare())) {
+			int[] moves = new int[PackedMove.MAX_MOVES];
+			int count = new LongMoveMap().makeMoves(board, moves);
+			return PackedMove.toMove(san.pick(moves, count));
+		}
+		return PackedMove.toMove(san.pick(board));
+	}
+	
+	private static class San {
+		String move;
+		ChessPiece piece = ChessPiece.PAWN, promotion = ChessPiece.EMPTY;
+		BoardSquare stop;
+		boolean capture;
+		char file, rank, castle;
+		
+		San(String move) throws IllegalMoveException {
+			this.move = move;
+			String san = stripSuffixes(move);
+			if (san.equals("O-O") || san.equals("0-0")) {
+				castle = 'g';
+				return;
+			} else if (san.equals("O-O-O") || san.equals("0-0-0")) {
+				castle = 'c';
+				return;
+			}
+			
+			int start = 0, end = san.length();
+			if (end > 0 && pieceFor(san.charAt(end - 1)) != null) {
+				promotion = pieceFor(san.charAt(end - 1));
+				end -= end >= 2 && san.charAt(end - 2) == '=' ? 2 : 1;
 			}
+			if (end - start < 2) {throw illegal();}
+			stop = squareAt(san, end - 2);
+			end -= 2;
+			
+			if (start < end && pieceFor(san.charAt(start)) != null) {
+				piece = pieceFor(san.charAt(start));
+				start += 1;
+			}
+			capture = start < end && san.charAt(end - 1) == 'x';
+			if (capture) {end -= 1;}
+			
+			for (int i = start; i < end; ++i) {
+				char c = san.charAt(i);
+				if (c >= 'a' && c <= 'h' && file == 0) {
+					file = c;
+				} else if (c >= '1' && c <= '8' && rank == 0) {
+					rank = c;
+				} else {
+					throw illegal();
+				}
+			}
+			if (stop == null || (piece == ChessPiece.PAWN && capture && file == 0)) {throw illegal();}
+		}
+		
+		int pick(int[] moves, int count) throws IllegalMoveException {
+			int found = PackedMove.NONE;
+			for (int i = 0; i < count; ++i) {
+				int m = moves[i];
+				boolean fits = castle != 0 ? PackedMove.isCastle(m) && PackedMove.stop(m).file() == castle 
+						: PackedMove.stop(m) == stop && PackedMove.piece(m) == piece && PackedMove.captures(m) == capture 
+						&& !PackedMove.isCastle(m) && startFits(PackedMove.start(m)) && PackedMove.promotesTo(m) == promotion;
+				if (fits) {
+					if (found != PackedMove.NONE) {throw new IllegalMoveException(move + " is ambiguous");}
+					found = m;
+				}
+			}
+			if (found == PackedMove.NONE) {throw illegal();}
+			return found;
 		}
-		throw new IllegalMoveException(move + " is not a legal move");
+		
+		// Not for castling or en passant.
+		int pick(Chessboard board) throws IllegalMoveException {
+			PieceColor mover = board.getMoverColor();
+			boolean occupied = board.isOccupied(stop);
+			if (occupied != capture || (occupied && board.colorAt(stop) == mover)
+					|| (promotion != ChessPiece.EMPTY) != (piece == ChessPiece.PAWN && stop.pawnEnd(mover))
+					|| promotion == ChessPiece.KING
+					|| (piece == ChessPiece.PAWN && stop.pawnImpossible() && !stop.pawnEnd(mover))) {
+				throw illegal();
+			}
+			
+			long from = board.bitsOf(mover, piece) & reaching(board, mover);
+			int found = -1;
+			for (; from != 0; from &= from - 1) {
+				int start = Long.numberOfTrailingZeros(from);
+				if (startFits(BoardSquare.fromOrdinal(start)) && board.keepsKingSafe(start, stop.ordinal())) {
+					if (found >= 0) {throw new IllegalMoveException(move + " is ambiguous");}
+					found = start;
+				}
+			}
+			if (found < 0) {throw illegal();}
+			
+			int m = PackedMove.pack(mover, piece, BoardSquare.fromOrdinal(found), stop);
+			if (capture) {m = PackedMove.withCapture(m, board.at(stop));}
+			if (promotion != ChessPiece.EMPTY) {m = PackedMove.withPromotion(m, promotion);}
+			return m;
+		}
+		
+		// Squares from which a piece of this kind could move to stop.
+		private long reaching(Chessboard board, PieceColor mover) {
+			MoveGenerator gen = MoveMap.moveMaker;
+			int sq = stop.ordinal();
+			switch (piece) {
+			case PAWN:
+				if (capture) {return MoveGenerator.pawnAttacks(mover.other(), sq);}
+				BoardSquare back = stop.pawnAdvanceFrom(mover.other());
+				if (!board.isOccupied(back) && stop.pawnJumpTarget(mover)) {
+					back = back.pawnAdvanceFrom(mover.other());
+				}
+				return back.getMask();
+			case KNIGHT: return MoveGenerator.knightAttacks(sq);
+			case BISHOP: return gen.bishopAttacks(sq, board.occupancy());
+			case ROOK: return gen.rookAttacks(sq, board.occupancy());
+			case QUEEN: return gen.rookAttacks(sq, board.occupancy()) | gen.bishopAttacks(sq, board.occupancy());
+			default: return MoveGenerator.kingAttacks(sq);
+			}
+		}
+		
+		private boolean startFits(BoardSquare start) {
+			return (file == 0 || start.file() == file) && (rank == 0 || start.rankNum() == rank - '0');
+		}
+		
+		private IllegalMoveException illegal() {
+			return new IllegalMoveException(move + " is not a legal move");
+		}
+	}
+	
+	private static String stripSuffixes(String move) {
+		int end = move.length();
+		while (end > 0 && "+#!?".indexOf(move.charAt(end - 1)) >= 0) {
+			end -= 1;
+		}
+		return move.substring(0, end);
 	}
 	
+	// Only the pieces that can be named in a move; pawns have no letter.
+	private static ChessPiece pieceFor(char symbol) {
+		switch (symbol) {
+		case 'Q': return ChessPiece.QUEEN;
+		case 'R': return ChessPiece.ROOK;
+		case 'B': return ChessPiece.BISHOP;
+		case 'N': return ChessPiece.KNIGHT;
+		case 'K': return ChessPiece.KING;
+		default: return null;
+		}
+	}
+	
+	private static BoardSquare squareAt(String san, int i) {
+		char file = san.charAt(i), rank = san.charAt(i + 1);
+		if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+			return null;
+		}
+		return BoardSquare.fromOrdinal(8 * ('8' - rank) + (file - 'a'));
+	}
+	
+	// Pawns reaching the last rank become queens.
 	public static Move decode(BoardSquare start, BoardSquare stop, Chessboard board) throws IllegalMoveException {
-		for (Move m: board.getLegalMovesTo(stop)) {
-			if (m.getStart().equals(start)) {
-				return m;
-			}
+		PieceColor mover = board.getMoverColor();
+		ChessPiece piece = board.at(start);
+		BoardSquare capture = board.isOccupied(stop) ? stop : null;
+		if (piece == ChessPiece.PAWN && stop == board.getEnPassantSquare() && start.file() != stop.file()) {
+			capture = BoardSquare.fromOrdinal(stop.ordinal() + (mover == PieceColor.WHITE ? 8 : -8));
+		}
+		Move m;
+		if (piece == ChessPiece.PAWN && stop.pawnEnd(mover)) {
+			m = capture == null ? new Move(mover, piece, start, stop, ChessPiece.QUEEN) : new Move(mover, piece, start, stop, capture, ChessPiece.QUEEN);
+		} else {
+			m = capture == null ? new Move(mover, piece, start, stop) : new Move(mover, piece, start, stop, capture);
+		}
+		if (!board.isLegal(m)) {
+			throw new IllegalMoveException(start + " to " + stop + " is not a legal move");
 		}
-		throw new IllegalMoveException(start + " to " + stop + " is not a legal move");
+		return m;
 	}
 	
 	public static boolean moveExistsStartingAt(BoardSquare start, Chessboard board) {
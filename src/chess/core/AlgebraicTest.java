@@ -0,0 +1,73 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.*;
+
+public class AlgebraicTest {
+	String[] game = new String[]{"e4", "d5", "e5", "f5", "exf6", "e5", "d4", "Bb4+", "c3", "Qe7", "fxg7", "Qh4",
+			"Nf3", "Qxf2+", "Kxf2", "Bc5", "gxh8=N"};
+
+	@Test
+	public void decodesEveryEncoding() throws IllegalMoveException {
+		Chessboard board = new Chessboard();
+		for (String move: game) {
+			for (Move m: board.getLegalMoves()) {
+				assertEquals(m.toString(), Algebraic.decode(Algebraic.encode(m, board), board).toString());
+			}
+			board = Algebraic.successor(board, move);
+		}
+	}
+
+	@Test
+	public void suffixesAndVariants() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "e5", "Nf3", "Nc6", "Bc4", "Nf6");
+		assertEquals(Algebraic.decode("O-O", board), Algebraic.decode("0-0", board));
+		assertEquals(Algebraic.decode("Bxf7", board), Algebraic.decode("Bxf7+!?", board));
+		assertEquals(Algebraic.decode("Ng5", board), Algebraic.decode("Nfg5", board));
+
+		Chessboard promote = Algebraic.from(Arrays.copyOf(game, game.length - 1));
+		assertEquals("WHITE_PAWN_g7_h8xh8=KNIGHT", Algebraic.decode("gxh8N", promote).toString());
+		assertFalse(Algebraic.isLegal("gxh8", promote));
+	}
+
+	@Test
+	public void rejects() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("Nc3", "Nc6", "Nf3", "Nf6", "Ne4", "Ne5");
+		assertFalse(Algebraic.isLegal("Ng5", board));
+		assertEquals(Algebraic.decode("Neg5", board), Algebraic.decode("N4g5", board));
+		assertEquals(Algebraic.decode("Nxe5", board), Algebraic.decode("Nfxe5", board));
+		assertFalse(Algebraic.isLegal("Ne5", board));
+		assertFalse(Algebraic.isLegal("xe5", board));
+		assertFalse(Algebraic.isLegal("O-O", board));
+		assertFalse(Algebraic.isLegal("Zf3", board));
+		assertFalse(Algebraic.isLegal("e", board));
+		assertFalse(Algebraic.isLegal("", board));
+		assertFalse(Algebraic.isLegal("e1", FEN.decode("4k3/8/8/8/8/8/8/K7 w - - 0 1")));
+		assertFalse(Algebraic.isLegal("dxe1", FEN.decode("4k3/8/8/8/8/8/8/K3n3 w - - 0 1")));
+		assertFalse(Algebraic.isLegal("e8", FEN.decode("k7/8/8/8/8/8/8/4K3 b - - 0 1")));
+	}
+
+	@Test
+	public void checksFromAttackTables() throws IllegalMoveException {
+		Random random = new Random(7);
+		for (int game = 0; game < 40; ++game) {
+			Chessboard board = new Chessboard();
+			for (int ply = 0; ply < 80 && board.gameInProgress(); ++ply) {
+				List<Move> moves = board.getLegalMoves();
+				for (Move m: moves) {
+					Chessboard next = board.successor(m);
+					String san = Algebraic.encode(m, board, moves);
+					assertEquals(san, next.moverInCheck(), Algebraic.givesCheck(m, board));
+					assertEquals(san, next.isCheckmate(), san.endsWith("#"));
+					assertEquals(san, m.toString(), Algebraic.decode(san, board).toString());
+				}
+				board = board.successor(moves.get(random.nextInt(moves.size())));
+			}
+		}
+	}
+}
@@ -21,10 +21,12 @@ public class BitBoard implements Iterable<BoardSquare>, LongHashable {
 		this(0);
 	}
 	
-	private BitBoard(long bits) {
+	BitBoard(long bits) {
 		this.bits = bits;
 	}
 	
+	long getBits() {return bits;}
+	
 	public BitBoard(BitBoard that) {
 		this(that.bits);
 	}
@@ -269,7 +271,7 @@ public class BitBoard implements Iterable<BoardSquare>, LongHashable {
 		public BoardSquare next() {
 			prev = unseen & -unseen;
 			unseen -= prev;
-			return BoardSquare.values()[Long.numberOfTrailingZeros(prev)];
+			return BoardSquare.fromOrdinal(Long.numberOfTrailingZeros(prev));
 		}
 
 		@Override
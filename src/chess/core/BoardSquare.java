@@ -12,6 +12,7 @@ public enum BoardSquare {
 	
 	private String label;
 	private long mask;
+	private final static BoardSquare[] squares = values();
 	
 	private BoardSquare() {
 		this.label = name().toLowerCase();
@@ -116,6 +117,10 @@ public enum BoardSquare {
 		return newRank >= 1 && newRank <= 8 && newFile >= 1 && newFile <= 8;
 	}
 	
+	public static BoardSquare fromOrdinal(int ordinal) {
+		return squares[ordinal];
+	}
+	
 	public static BoardSquare fileRank2Square(int file, int rank) {
 		return BoardSquare.valueOf(fileToStr(file) + rankToStr(rank));
 	}
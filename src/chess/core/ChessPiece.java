@@ -27,4 +27,7 @@ public enum ChessPiece {
 	abstract public char symbol();
 	
 	public final static ChessPiece[] slidingPieces = new ChessPiece[]{QUEEN, ROOK, BISHOP};
+	
+	// Every real piece, indexed by ordinal.
+	public final static ChessPiece[] onBoard = new ChessPiece[]{PAWN, QUEEN, ROOK, BISHOP, KNIGHT, KING};
 }
\ No newline at end of file
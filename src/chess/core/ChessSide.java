@@ -1,20 +1,16 @@
 package chess.core;
 
-import java.util.EnumMap;
+import java.util.Arrays;
 
 class ChessSide {
-	private EnumMap<ChessPiece,BitBoard> boards;
+	// Indexed by ChessPiece ordinal; occupied is the union of all six.
+	private long[] boards;
+	private long occupied;
 	private BoardSquare kingRookStart, kingRookCastle, queenRookStart, queenRookCastle;
-	private boolean kingMoved, kingRookMoved, queenRookMoved;
 	
 	public ChessSide(ChessSide that) {
-		this.boards = new EnumMap<ChessPiece,BitBoard>(ChessPiece.class);
-		for (ChessPiece piece: that.boards.keySet()) {
-			this.boards.put(piece, new BitBoard(that.boards.get(piece)));
-		}
-		this.kingMoved = that.kingMoved;
-		this.kingRookMoved = that.kingRookMoved;
-		this.queenRookMoved = that.queenRookMoved;
+		this.boards = that.boards.clone();
+		this.occupied = that.occupied;
 		this.kingRookStart = that.kingRookStart;
 		this.kingRookCastle = that.kingRookCastle;
 		this.queenRookStart = that.queenRookStart;
@@ -25,15 +21,7 @@ class ChessSide {
 	public boolean equals(Object other) {
 		if (other instanceof ChessSide) {
 			ChessSide that = (ChessSide)other;
-			if (this.kingMoved != that.kingMoved || this.kingRookMoved != that.kingRookMoved || this.queenRookMoved != that.queenRookMoved) {
-				return false;
-			}
-			for (ChessPiece cp: boards.keySet()) {
-				if (!boards.get(cp).equals(that.boards.get(cp))) {
-					return false;
-				}
-			}
-			return true;
+			return Arrays.equals(this.boards, that.boards);
 		} else {
 			return false;
 		}
@@ -59,16 +47,23 @@ class ChessSide {
 		return new ChessSide(pns, kts, rks, bps, qns, kng, BoardSquare.H8, BoardSquare.A8);
 	}
 	
+	// No pieces yet; FEN.decode() adds them one at a time.
+	public static ChessSide makeEmpty(PieceColor color) {
+		BitBoard none = new BitBoard(0);
+		return color == PieceColor.WHITE ? new ChessSide(none, none, none, none, none, none, BoardSquare.H1, BoardSquare.A1)
+				: new ChessSide(none, none, none, none, none, none, BoardSquare.H8, BoardSquare.A8);
+	}
+	
 	private ChessSide(BitBoard pawns, BitBoard knights, BitBoard rooks, BitBoard bishops, BitBoard queens, BitBoard king, BoardSquare krStart, BoardSquare qrStart) {
-		boards = new EnumMap<ChessPiece,BitBoard>(ChessPiece.class);
-		boards.put(ChessPiece.PAWN, pawns);
-		boards.put(ChessPiece.KNIGHT, knights);
-		boards.put(ChessPiece.ROOK, rooks);
-		boards.put(ChessPiece.BISHOP, bishops);
-		boards.put(ChessPiece.QUEEN, queens);
-		boards.put(ChessPiece.KING, king);
+		boards = new long[ChessPiece.onBoard.length];
+		boards[ChessPiece.PAWN.ordinal()] = pawns.getBits();
+		boards[ChessPiece.KNIGHT.ordinal()] = knights.getBits();
+		boards[ChessPiece.ROOK.ordinal()] = rooks.getBits();
+		boards[ChessPiece.BISHOP.ordinal()] = bishops.getBits();
+		boards[ChessPiece.QUEEN.ordinal()] = queens.getBits();
+		boards[ChessPiece.KING.ordinal()] = king.getBits();
+		for (long board: boards) {occupied |= board;}
 		
-		kingMoved = kingRookMoved = queenRookMoved = false;
 		kingRookStart = krStart;
 		kingRookCastle = kingRookStart.successor(MoveDir.W).successor(MoveDir.W);
 		queenRookStart = qrStart;
@@ -76,71 +71,55 @@ class ChessSide {
 	}
 	
 	public ChessPiece at(BoardSquare s) {
-		for (ChessPiece p: ChessPiece.values()) {
-			if (p != ChessPiece.EMPTY && has(s, p)) {
-				return p;
+		long mask = s.getMask();
+		if ((occupied & mask) != 0) {
+			for (int p = 0; p < boards.length; ++p) {
+				if ((boards[p] & mask) != 0) {
+					return ChessPiece.onBoard[p];
+				}
 			}
 		}
 		return ChessPiece.EMPTY;
 	}
 	
 	public boolean hasKing() {
-		for (@SuppressWarnings("unused") BoardSquare s: boards.get(ChessPiece.KING)) {
-			return true;
-		}
-		return false;
+		return boards[ChessPiece.KING.ordinal()] != 0;
 	}
 	
 	public BoardSquare getKingLocation() {
-		for (BoardSquare s: boards.get(ChessPiece.KING)) {
-			return s;
-		}
-		throw new IllegalStateException("No king present.");
+		long king = boards[ChessPiece.KING.ordinal()];
+		if (king == 0) {throw new IllegalStateException("No king present.");}
+		return BoardSquare.fromOrdinal(Long.numberOfTrailingZeros(king));
 	}
 	
 	public boolean isOccupied(BoardSquare s) {
-		return at(s) != ChessPiece.EMPTY;
+		return (occupied & s.getMask()) != 0;
 	}
 	
-	public boolean canCastleKingside() {
-		return !kingMoved && !kingRookMoved;
+	BoardSquare getRookStart(MoveDir castleDir) {
+		return castleDir == MoveDir.E ? kingRookStart : queenRookStart;
 	}
 	
-	public boolean canCastleQueenside() {
-		return !kingMoved && !queenRookMoved;
+	BoardSquare getRookCastle(MoveDir castleDir) {
+		return castleDir == MoveDir.E ? kingRookCastle : queenRookCastle;
 	}
 	
 	public BitBoard differences(ChessSide other) {
-		BitBoard result = new BitBoard();
-		for (ChessPiece p: boards.keySet()) {
-			result.addAll(this.boards.get(p).symmetricDifference(other.boards.get(p)));
+		long result = 0;
+		for (int p = 0; p < boards.length; ++p) {
+			result |= this.boards[p] ^ other.boards[p];
 		}
-		return result;
-	}
-	
-	private boolean has(BoardSquare s, ChessPiece p) {
-		return boards.get(p).isSet(s);
+		return new BitBoard(result);
 	}
 	
 	public void move(Move m) {
 		if (!at(m.getStart()).equals(m.getPiece())) {throw new IllegalArgumentException("Impossible move " + m);}
 		teleport(m.getPiece(), m.getStart(), m.getStop());
-		if (m.getPiece() == ChessPiece.KING) {
-			BoardSquare kingTo = m.getStop();
-			if (canCastleKingside() && kingTo.file() == 'g') {
+		if (m.isCastlingMove()) {
+			if (m.getStop().file() == 'g') {
 				teleport(ChessPiece.ROOK, kingRookStart, kingRookCastle);
-				kingRookMoved = true;
-			}
-			if (canCastleQueenside() && kingTo.file() == 'c') {
+			} else {
 				teleport(ChessPiece.ROOK, queenRookStart, queenRookCastle);
-				queenRookMoved = true;
-			}
-			kingMoved = true;
-		} else if (m.getPiece() == ChessPiece.ROOK) {
-			if (m.getStart() == kingRookStart) {
-				kingRookMoved = true;
-			} else if (m.getStart() == queenRookStart) {
-				queenRookMoved = true;
 			}
 		}
 	}
@@ -151,22 +130,26 @@ class ChessSide {
 	}
 	
 	public void remove(ChessPiece p, BoardSquare s) {
-		boards.get(p).clear(s);
+		boards[p.ordinal()] &= ~s.getMask();
+		occupied &= ~s.getMask();
 	}
 	
 	public void add(ChessPiece p, BoardSquare s) {
-		boards.get(p).set(s);
+		boards[p.ordinal()] |= s.getMask();
+		occupied |= s.getMask();
 	}
 	
 	public BitBoard getAllPieces() {
-		BitBoard result = new BitBoard();
-		for (ChessPiece p: boards.keySet()) {
-			result.addAll(boards.get(p));
-		}
-		return result;
+		return new BitBoard(occupied);
 	}
 	
 	public BitBoard getAllOf(ChessPiece type) {
-		return new BitBoard(boards.get(type));
+		return new BitBoard(boards[type.ordinal()]);
 	}
+	
+	long occupancy() {return occupied;}
+	
+	long bitsOf(ChessPiece type) {return boards[type.ordinal()];}
+	
+	int count(ChessPiece type) {return Long.bitCount(boards[type.ordinal()]);}
 }
@@ -7,19 +7,75 @@ public class Chessboard {
 	private EnumMap<PieceColor,ChessSide> sides;
 	private PieceColor turn;
 	
+	// Castling rights as Zobrist.WHITE_KINGSIDE etc., and the square a pawn
+	// skipped over on the last move (NO_SQUARE if it was not a double push)
+	private int castling, enPassant;
+	final static int ALL_RIGHTS = 15, NO_SQUARE = -1;
+	private final static int[] keepRights = makeKeepRights();
+	
+	// Where the king lands, the right it needs, its rook, and the squares that
+	// must be empty, for each castle: white kingside and queenside, then black
+	private final static int[] CASTLE_TARGETS = new int[]{62, 58, 6, 2}, CASTLE_ROOKS = new int[]{63, 56, 7, 0};
+	private final static int[] CASTLE_RIGHTS = new int[]{Zobrist.WHITE_KINGSIDE, Zobrist.WHITE_QUEENSIDE, Zobrist.BLACK_KINGSIDE, Zobrist.BLACK_QUEENSIDE};
+	private final static long[] CASTLE_PATHS = new long[]{0x6000000000000000L, 0x0E00000000000000L, 0x60L, 0x0EL};
+	
+	// Piece and color per square, indexed by BoardSquare ordinal; kept in step with sides
+	private byte[] mailbox;
+	private final static byte EMPTY_SQUARE = 0, BLACK_FLAG = 8, PIECE_MASK = 7;
+	
+	// a8, c8, ..., b7, d7, ...: the squares a bishop on a8 can reach
+	private final static long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+	
 	// Move generation
 	private Move lastMove = null;
 	private int numMoves = 0;
-	private Chessboard parent;
+	
+	// Plies since the last capture or pawn move, and plies played before
+	// this board's game began (nonzero only for positions set up from FEN)
+	private int halfmoveClock, startPly;
+	
+	// Zobrist keys, maintained incrementally by move()
+	private long key, pawnKey, materialKey;
+	
+	// Mover's pieces giving check and pinned to its king; found on first use after each move
+	private long checkers, pinned;
+	private boolean pinsFound;
+	
+	// Also found on first use after each move. Taking a move back restores
+	// the list and status, but not the maps, which callers may still hold.
+	private MoveMap moveMap, opponentMoveMap;
+	private List<Move> legalMoves;
+	private int status = UNKNOWN;
+	private final static int UNKNOWN = 0, IN_PROGRESS = 1, CHECKMATE = 2, STALEMATE = 3;
+	
+	// Scratch for status(), one per thread, so finding it allocates nothing
+	private final static ThreadLocal<LongMoveMap> statusMap = new ThreadLocal<LongMoveMap>() {
+		@Override
+		protected LongMoveMap initialValue() {return new LongMoveMap();}
+	};
+	private final static ThreadLocal<int[]> statusMoves = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {return new int[PackedMove.MAX_MOVES];}
+	};
 	
 	public Chessboard() {
-		turn = PieceColor.WHITE;
+		this(ChessSide.makeWhiteStart(), ChessSide.makeBlackStart(), PieceColor.WHITE, ALL_RIGHTS, NO_SQUARE, 0, 0);
+	}
+	
+	// A position set up directly; FEN.decode() checks the arguments make sense.
+	Chessboard(ChessSide white, ChessSide black, PieceColor turn, int castling, int enPassant, int halfmoveClock, int startPly) {
+		this.turn = turn;
 		
 		this.sides = new EnumMap<PieceColor,ChessSide>(PieceColor.class);
-		sides.put(PieceColor.WHITE, ChessSide.makeWhiteStart());
-		sides.put(PieceColor.BLACK, ChessSide.makeBlackStart());
+		sides.put(PieceColor.WHITE, white);
+		sides.put(PieceColor.BLACK, black);
+		this.castling = castling;
+		this.enPassant = enPassant;
+		this.halfmoveClock = halfmoveClock;
+		this.startPly = startPly;
 		
-		parent = null;
+		fillMailbox();
+		rehash();
 	}
 	
 	public boolean isStartingBoard() {
@@ -29,11 +85,68 @@ public class Chessboard {
 	public Chessboard successor(Move m) {
 		Chessboard succ = new Chessboard(this);
 		succ.move(m);
-		succ.lastMove = m;
 		succ.numMoves = this.numMoves + 1;
 		return succ;		
 	}
 	
+	void makeMove(Move m, MoveUndo undo) {
+		undo.move = m;
+		undo.captured = m.captures() ? getNonMover().at(m.getCapture()) : ChessPiece.EMPTY;
+		undo.castling = castling;
+		undo.enPassant = enPassant;
+		undo.halfmoveClock = halfmoveClock;
+		undo.lastMove = lastMove;
+		undo.key = key;
+		undo.pawnKey = pawnKey;
+		undo.materialKey = materialKey;
+		undo.checkers = checkers;
+		undo.pinned = pinned;
+		undo.pinsFound = pinsFound;
+		undo.legalMoves = legalMoves;
+		undo.status = status;
+		move(m);
+		numMoves += 1;
+	}
+	
+	void unmakeMove(MoveUndo undo) {
+		Move m = undo.move;
+		turn = turn.other();
+		ChessSide mover = getMover();
+		if (m.promotes()) {
+			mover.remove(m.promotesTo(), m.getStop());
+			mover.add(ChessPiece.PAWN, m.getStop());
+		}
+		mover.remove(m.getPiece(), m.getStop());
+		mover.add(m.getPiece(), m.getStart());
+		vacate(m.getStop());
+		place(turn, m.getPiece(), m.getStart());
+		if (m.isCastlingMove()) {
+			MoveDir castleDir = m.getStop().file() == 'g' ? MoveDir.E : MoveDir.W;
+			mover.remove(ChessPiece.ROOK, mover.getRookCastle(castleDir));
+			mover.add(ChessPiece.ROOK, mover.getRookStart(castleDir));
+			vacate(mover.getRookCastle(castleDir));
+			place(turn, ChessPiece.ROOK, mover.getRookStart(castleDir));
+		}
+		if (undo.captured != ChessPiece.EMPTY) {
+			getNonMover().add(undo.captured, m.getCapture());
+			place(turn.other(), undo.captured, m.getCapture());
+		}
+		castling = undo.castling;
+		enPassant = undo.enPassant;
+		halfmoveClock = undo.halfmoveClock;
+		lastMove = undo.lastMove;
+		key = undo.key;
+		pawnKey = undo.pawnKey;
+		materialKey = undo.materialKey;
+		forgetDerived();
+		checkers = undo.checkers;
+		pinned = undo.pinned;
+		pinsFound = undo.pinsFound;
+		legalMoves = undo.legalMoves;
+		status = undo.status;
+		numMoves -= 1;
+	}
+	
 	public boolean hasLastMove() {
 		return getNumMoves() > 0;
 	}
@@ -46,19 +159,28 @@ public class Chessboard {
 		return numMoves;
 	}
 	
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	
+	// Starts at 1 and goes up after each black move, as in FEN.
+	public int getFullmoveNumber() {
+		return (startPly + numMoves) / 2 + 1;
+	}
+	
 	public PieceColor getMoverColor() {return turn;}
 	public PieceColor getOpponentColor() {return turn.other();}
 	
 	public boolean onePerSquare() {
-		return getMover().getAllPieces().intersection(getNonMover().getAllPieces()).equals(new BitBoard());
+		return (getMover().occupancy() & getNonMover().occupancy()) == 0;
 	}
 	
 	public BitBoard allPiecesFor(PieceColor color) {
-		return new BitBoard(sides.get(color).getAllPieces());
+		return new BitBoard(sides.get(color).occupancy());
 	}
 	
 	public BitBoard allPieces()	{
-		return allPiecesFor(PieceColor.WHITE).union(allPiecesFor(PieceColor.BLACK));
+		return new BitBoard(occupancy());
 	}
 	
 	public boolean hasKing(PieceColor color) {
@@ -70,7 +192,7 @@ public class Chessboard {
 	}
 	
 	public boolean isOccupied(BoardSquare s) {
-		return getNonMover().isOccupied(s) || getMover().isOccupied(s);
+		return (occupancy() & s.getMask()) != 0;
 	}
 	
 	public boolean isValidMoverTarget(BoardSquare s) {
@@ -78,23 +200,37 @@ public class Chessboard {
 	}
 	
 	public boolean potentialCastleKingside() {
-		return getMover().canCastleKingside();
+		return (castling & (turn == PieceColor.WHITE ? Zobrist.WHITE_KINGSIDE : Zobrist.BLACK_KINGSIDE)) != 0;
 	}
 	
 	public boolean potentialCastleQueenside() {
-		return getMover().canCastleQueenside();
+		return (castling & (turn == PieceColor.WHITE ? Zobrist.WHITE_QUEENSIDE : Zobrist.BLACK_QUEENSIDE)) != 0;
+	}
+	
+	// The square a pawn skipped over on the last move, or null.
+	public BoardSquare getEnPassantSquare() {
+		return enPassant == NO_SQUARE ? null : BoardSquare.fromOrdinal(enPassant);
 	}
 	
 	public List<Move> getLegalMoves() {
-		return Collections.unmodifiableList(getMoveMap().makeMoveList());
+		if (legalMoves == null) {
+			legalMoves = Collections.unmodifiableList(getMoveMap().makeMoveList());
+		}
+		return legalMoves;
+	}
+	
+	public int getLegalMoves(int[] buffer) {
+		return getMoveMap().makeMoves(buffer);
 	}
 	
 	public MoveMap getMoveMap() {
-		return new MoveMap(this, turn);
+		if (moveMap == null) {moveMap = new MoveMap(this, turn);}
+		return moveMap;
 	}
 	
 	public MoveMap getOpponentMoveMap() {
-		return new MoveMap(this, turn.other());
+		if (opponentMoveMap == null) {opponentMoveMap = new MoveMap(this, turn.other());}
+		return opponentMoveMap;
 	}
 	
 	public ArrayList<Move> getLegalMovesTo(BoardSquare sq) {
@@ -108,21 +244,14 @@ public class Chessboard {
 	}
 	
 	public ChessPiece at(BoardSquare s) {
-		ChessPiece p = getWhite().at(s);
-		if (p == ChessPiece.EMPTY) {
-			p = getBlack().at(s);
-		}
-		return p;
+		byte contents = mailbox[s.ordinal()];
+		return contents == EMPTY_SQUARE ? ChessPiece.EMPTY : ChessPiece.onBoard[(contents & PIECE_MASK) - 1];
 	}
 	
 	public PieceColor colorAt(BoardSquare s) {
-		ChessPiece p = getWhite().at(s);
-		if (p == ChessPiece.EMPTY) {
-			if (getBlack().at(s) == ChessPiece.EMPTY) {throw new IllegalStateException("No color for empty piece at " + s);}
-			return PieceColor.BLACK;
-		} else {
-			return PieceColor.WHITE;
-		}
+		byte contents = mailbox[s.ordinal()];
+		if (contents == EMPTY_SQUARE) {throw new IllegalStateException("No color for empty piece at " + s);}
+		return (contents & BLACK_FLAG) != 0 ? PieceColor.BLACK : PieceColor.WHITE;
 	}
 	
 	@Override
@@ -133,7 +262,7 @@ public class Chessboard {
 		int nextRow = 8;
 		for (BoardSquare s: BoardSquare.values()) {
 			char sym = at(s).symbol();
-			if (at(s) != ChessPiece.EMPTY && colorAt(s) == PieceColor.BLACK) {
+			if ((mailbox[s.ordinal()] & BLACK_FLAG) != 0) {
 				sym = Character.toLowerCase(sym);
 			}
 			sb.append(sym);
@@ -146,42 +275,242 @@ public class Chessboard {
 		return sb.toString();
 	}
 
+	public long getZobristKey() {return key;}
+	public long getPawnKey() {return pawnKey;}
+	public long getMaterialKey() {return materialKey;}
+
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return (int)key ^ (int)(key >>> 32);
 	}
 	
 	@Override
 	public boolean equals(Object other) {
 		if (other instanceof Chessboard) {
 			Chessboard that = (Chessboard)other;
-			return this.getMover().equals(that.getMover()) && this.getNonMover().equals(that.getNonMover());
+			// Different keys rule a match out quickly; equal keys may still collide.
+			return this.key == that.key && this.turn == that.turn && this.castling == that.castling
+					&& this.enPassant == that.enPassant && this.sides.equals(that.sides);
 		} else {
 			return false;
 		}
 	}
 	
+	int castlingRights() {
+		return castling;
+	}
+	
+	int enPassantFile() {
+		return enPassant == NO_SQUARE ? -1 : enPassant % 8;
+	}
+	
 	public boolean moverInCheck() {
-		return getOpponentMoveMap().canAttack(kingAt(turn));
+		return checkers() != 0;
 	}
 	
 	public boolean opponentInCheck() {
-		return getMoveMap().canAttack(kingAt(turn.other()));
+		return isAttacked(kingAt(turn.other()), turn);
+	}
+	
+	public boolean isAttacked(BoardSquare square, PieceColor by) {
+		return attackersTo(square.ordinal(), by, occupancy()) != 0;
+	}
+	
+	public BitBoard attackersTo(BoardSquare square, PieceColor color) {
+		return new BitBoard(attackersTo(square.ordinal(), color, occupancy()));
+	}
+	
+	// Opponent pieces giving check to the mover's king.
+	long checkers() {
+		if (!pinsFound) {findPins();}
+		return checkers;
+	}
+	
+	// Mover's pieces that cannot leave the line between their king and an enemy slider.
+	long pinned() {
+		if (!pinsFound) {findPins();}
+		return pinned;
+	}
+	
+	// Whether the mover's piece on start may go to stop without leaving its
+	// king attacked, given that the piece can otherwise make that move. Not
+	// for castling or en passant, which move or take a second piece.
+	boolean keepsKingSafe(int start, int stop) {
+		int king = Long.numberOfTrailingZeros(bitsOf(turn, ChessPiece.KING));
+		if (start == king) {
+			return attackersTo(stop, turn.other(), occupancy() & ~(1L << king)) == 0;
+		}
+		long checkers = checkers(), stopBit = 1L << stop;
+		if (checkers != 0) {
+			if (Long.bitCount(checkers) > 1) {return false;}
+			long blocks = checkers | MoveGenerator.squaresBetween(king, Long.numberOfTrailingZeros(checkers));
+			if ((blocks & stopBit) == 0) {return false;}
+		}
+		return (pinned() & (1L << start)) == 0 || (MoveGenerator.lineThrough(king, start) & stopBit) != 0;
+	}
+	
+	// Whether m is one of getLegalMoves(), decided from the bitboards and
+	// pin masks without generating any moves. For hash, killer and book
+	// moves, which may come from some other position.
+	public boolean isLegal(Move m) {
+		if (!isPseudoLegal(m)) {return false;}
+		int start = m.getStart().ordinal(), stop = m.getStop().ordinal();
+		if (m.getPiece() == ChessPiece.KING && Math.abs(start - stop) == 2) {
+			return true;
+		} else if (m.getPiece() == ChessPiece.PAWN && stop == enPassant && m.getStart().file() != m.getStop().file()) {
+			int king = Long.numberOfTrailingZeros(bitsOf(turn, ChessPiece.KING));
+			long victim = m.getCapture().getMask();
+			long after = (occupancy() ^ (1L << start) ^ victim) | (1L << stop);
+			return (attackersTo(king, turn.other(), after) & ~victim) == 0;
+		} else {
+			return keepsKingSafe(start, stop);
+		}
+	}
+	
+	// Whether a pseudo-legal move could leave the mover's king attacked, so
+	// that opponentInCheck() has to be tested after it. Only king moves,
+	// moves out of check, en passant and moves from a line through the king
+	// can do so; the rest need no test.
+	public boolean mayExposeKing(Move m) {
+		int king = Long.numberOfTrailingZeros(bitsOf(turn, ChessPiece.KING)), start = m.getStart().ordinal();
+		return start == king || MoveGenerator.lineThrough(king, start) != 0 || checkers() != 0
+				|| (m.captures() && m.getCapture() != m.getStop());
+	}
+	
+	// Whether the mover's piece can make m here, ignoring whether it leaves
+	// the king attacked: the piece is on its start square, the target holds
+	// exactly what m captures, and nothing stands in the way. Castling is
+	// checked in full, attacked squares included.
+	public boolean isPseudoLegal(Move m) {
+		ChessPiece piece = m.getPiece();
+		int start = m.getStart().ordinal(), stop = m.getStop().ordinal();
+		if (m.getColor() != turn || piece == ChessPiece.EMPTY || (bitsOf(turn, piece) & (1L << start)) == 0
+				|| (occupancy(turn) & (1L << stop)) != 0) {
+			return false;
+		}
+		if (piece == ChessPiece.PAWN) {
+			return pawnMoveFits(m, start, stop);
+		} else if (m.promotes() || m.captures() != isOccupied(m.getStop()) || (m.captures() && m.getCapture() != m.getStop())) {
+			return false;
+		} else if (piece == ChessPiece.KING && Math.abs(start - stop) == 2) {
+			return castleFits(start, stop);
+		} else {
+			return (MoveMap.moveMaker.movesFor(start, piece, occupancy()) & (1L << stop)) != 0;
+		}
+	}
+	
+	private boolean pawnMoveFits(Move m, int start, int stop) {
+		if (m.promotes() != m.getStop().pawnEnd(turn) || (m.promotes() && !canPromoteTo(m.promotesTo()))) {
+			return false;
+		}
+		int step = turn == PieceColor.WHITE ? -8 : 8;
+		if (m.getStart().file() == m.getStop().file()) {
+			if (m.captures() || isOccupied(m.getStop())) {return false;}
+			return stop == start + step || (stop == start + 2 * step && !isOccupied(BoardSquare.fromOrdinal(start + step))
+					&& m.getStart().rankNum() == (turn == PieceColor.WHITE ? 2 : 7));
+		}
+		if (!m.captures() || (MoveGenerator.pawnAttacks(turn, start) & (1L << stop)) == 0) {
+			return false;
+		} else if (stop == enPassant) {
+			return m.getCapture().ordinal() == stop - step;
+		} else {
+			return m.getCapture() == m.getStop() && (occupancy(turn.other()) & (1L << stop)) != 0;
+		}
+	}
+	
+	private static boolean canPromoteTo(ChessPiece piece) {
+		return piece == ChessPiece.QUEEN || piece == ChessPiece.ROOK || piece == ChessPiece.BISHOP || piece == ChessPiece.KNIGHT;
+	}
+	
+	// The king may not castle out of, through or into check, and the
+	// squares between it and the rook must be empty.
+	private boolean castleFits(int start, int stop) {
+		for (int i = 0; i < CASTLE_TARGETS.length; ++i) {
+			if (stop == CASTLE_TARGETS[i] && start == (i < 2 ? 60 : 4) && (i < 2) == (turn == PieceColor.WHITE)) {
+				long kingPath = MoveGenerator.squaresBetween(start, stop) | (1L << stop);
+				if ((castling & CASTLE_RIGHTS[i]) == 0 || (bitsOf(turn, ChessPiece.ROOK) & (1L << CASTLE_ROOKS[i])) == 0
+						|| (occupancy() & CASTLE_PATHS[i]) != 0 || checkers() != 0) {
+					return false;
+				}
+				for (; kingPath != 0; kingPath &= kingPath - 1) {
+					if (attackersTo(Long.numberOfTrailingZeros(kingPath), turn.other(), occupancy()) != 0) {return false;}
+				}
+				return true;
+			}
+		}
+		return false;
 	}
 	
+	private void findPins() {
+		int king = kingAt(turn).ordinal();
+		checkers = attackersTo(king, turn.other(), occupancy());
+		pinned = MoveMap.moveMaker.pinnedTo(this, king, turn);
+		pinsFound = true;
+	}
+	
+	// Pieces of the given color attacking square, with sliders blocked only by occupancy.
+	long attackersTo(int square, PieceColor color, long occupancy) {
+		return MoveMap.moveMaker.attackersTo(this, square, color, occupancy);
+	}
+	
+	// The cheap check test comes first, so most positions never need a move list.
 	public boolean isCheckmate() {
-		return moverInCheck() && !gameInProgress();
+		return moverInCheck() && status() == CHECKMATE;
 	}
 	
 	public boolean isStalemate() {
-		return !moverInCheck() && !gameInProgress();
+		return !moverInCheck() && status() == STALEMATE;
+	}
+	
+	// A hundred plies without a capture or pawn move.
+	public boolean isFiftyMoveDraw() {
+		return halfmoveClock >= 100;
+	}
+	
+	// Neither side can mate: bare kings, one minor piece, or only bishops,
+	// all on squares of one color.
+	public boolean hasInsufficientMaterial() {
+		long heavy = 0, knights = 0, bishops = 0;
+		for (PieceColor color: PieceColor.values()) {
+			heavy |= bitsOf(color, ChessPiece.PAWN) | bitsOf(color, ChessPiece.ROOK) | bitsOf(color, ChessPiece.QUEEN);
+			knights |= bitsOf(color, ChessPiece.KNIGHT);
+			bishops |= bitsOf(color, ChessPiece.BISHOP);
+		}
+		if (heavy != 0) {return false;}
+		if (Long.bitCount(knights | bishops) <= 1) {return true;}
+		return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
 	}
 	
 	public boolean gameInProgress() {
-		return getMoveMap().getTotalPossibleMoves() > 0;
+		return status() == IN_PROGRESS;
+	}
+	
+	private int status() {
+		if (status == UNKNOWN) {
+			boolean canMove = legalMoves != null ? !legalMoves.isEmpty() : statusMap.get().makeMoves(this, statusMoves.get()) > 0;
+			status = canMove ? IN_PROGRESS : moverInCheck() ? CHECKMATE : STALEMATE;
+		}
+		return status;
+	}
+	
+	private void forgetDerived() {
+		pinsFound = false;
+		moveMap = opponentMoveMap = null;
+		legalMoves = null;
+		status = UNKNOWN;
+	}
+	
+	long occupancy() {
+		return getWhite().occupancy() | getBlack().occupancy();
 	}
 	
-	public Chessboard getParent() {return parent;}
+	long occupancy(PieceColor color) {
+		return sides.get(color).occupancy();
+	}
+	
+	long bitsOf(PieceColor color, ChessPiece type) {
+		return sides.get(color).bitsOf(type);
+	}
 	
 	public BitBoard getAllOf(PieceColor color, ChessPiece type) {
 		return sides.get(color).getAllOf(type);
@@ -193,14 +522,53 @@ public class Chessboard {
 		return blacks.union(whites);
 	}
 
-	private Chessboard(Chessboard that) {
+	Chessboard(Chessboard that) {
 		this.turn = that.turn;
+		this.castling = that.castling;
+		this.enPassant = that.enPassant;
 		
 		this.sides = new EnumMap<PieceColor,ChessSide>(PieceColor.class);
 		this.sides.put(PieceColor.WHITE, new ChessSide(that.sides.get(PieceColor.WHITE)));
 		this.sides.put(PieceColor.BLACK, new ChessSide(that.sides.get(PieceColor.BLACK)));
+		this.mailbox = that.mailbox.clone();
 		
-		this.parent = that;
+		this.lastMove = that.lastMove;
+		this.numMoves = that.numMoves;
+		this.halfmoveClock = that.halfmoveClock;
+		this.startPly = that.startPly;
+		this.key = that.key;
+		this.pawnKey = that.pawnKey;
+		this.materialKey = that.materialKey;
+		this.checkers = that.checkers;
+		this.pinned = that.pinned;
+		this.pinsFound = that.pinsFound;
+		this.legalMoves = that.legalMoves;
+		this.status = that.status;
+	}
+	
+	private void fillMailbox() {
+		mailbox = new byte[BoardSquare.values().length];
+		for (PieceColor color: PieceColor.values()) {
+			for (ChessPiece piece: ChessPiece.onBoard) {
+				for (BoardSquare s: getAllOf(color, piece)) {
+					place(color, piece, s);
+				}
+			}
+		}
+	}
+	
+	private void place(PieceColor color, ChessPiece piece, BoardSquare s) {
+		mailbox[s.ordinal()] = (byte)((piece.ordinal() + 1) | (color == PieceColor.BLACK ? BLACK_FLAG : 0));
+	}
+	
+	private void vacate(BoardSquare s) {
+		mailbox[s.ordinal()] = EMPTY_SQUARE;
+	}
+	
+	private void rehash() {
+		key = Zobrist.keyOf(this);
+		pawnKey = Zobrist.pawnKeyOf(this);
+		materialKey = Zobrist.materialKeyOf(this);
 	}
 	
 	private ChessSide getMover() {
@@ -213,18 +581,84 @@ public class Chessboard {
 	
 	private void move(Move m) {
 		if (turn != m.getColor()) {throw new IllegalArgumentException(m + " out of turn.");}
+		forgetDerived();
 		ChessSide mover = getMover();
 		ChessSide other = getNonMover();
+		int rightsBefore = castling;
+		key ^= Zobrist.enPassant(enPassantFile());
+		castling &= keepRights[m.getStart().ordinal()] & keepRights[m.getStop().ordinal()];
+		enPassant = NO_SQUARE;
+		halfmoveClock = m.getPiece() == ChessPiece.PAWN || m.captures() ? 0 : halfmoveClock + 1;
+		if (m.getPiece() == ChessPiece.PAWN && m.getStart().rankDiff(m.getStop()) == 2) {
+			enPassant = (m.getStart().ordinal() + m.getStop().ordinal()) / 2;
+		}
+		
 		mover.move(m);
+		hashPiece(turn, m.getPiece(), m.getStart());
+		hashPiece(turn, m.getPiece(), m.getStop());
+		if (m.isCastlingMove()) {
+			MoveDir castleDir = m.getStop().file() == 'g' ? MoveDir.E : MoveDir.W;
+			hashPiece(turn, ChessPiece.ROOK, mover.getRookStart(castleDir));
+			hashPiece(turn, ChessPiece.ROOK, mover.getRookCastle(castleDir));
+			vacate(mover.getRookStart(castleDir));
+			place(turn, ChessPiece.ROOK, mover.getRookCastle(castleDir));
+		}
 		if (m.captures()) {
 			ChessPiece target = other.at(m.getCapture());
 			other.remove(target, m.getCapture());
+			hashPiece(turn.other(), target, m.getCapture());
+			hashRemoval(turn.other(), target);
+			vacate(m.getCapture());
 		} 
+		vacate(m.getStart());
+		place(turn, m.getPiece(), m.getStop());
 		if (m.promotes()) {
 			mover.remove(ChessPiece.PAWN, m.getStop());
 			mover.add(m.promotesTo(), m.getStop());
+			place(turn, m.promotesTo(), m.getStop());
+			hashPiece(turn, ChessPiece.PAWN, m.getStop());
+			hashPiece(turn, m.promotesTo(), m.getStop());
+			hashRemoval(turn, ChessPiece.PAWN);
+			hashAddition(turn, m.promotesTo());
 		}
+		
+		lastMove = m;
 		turn = turn.other();
+		key ^= Zobrist.turn(PieceColor.BLACK);
+		key ^= Zobrist.castling(rightsBefore) ^ Zobrist.castling(castling);
+		key ^= Zobrist.enPassant(enPassantFile());
+	}
+	
+	// A move from or to one of these squares (a capture, for the rook
+	// squares) gives up the rights that depend on the piece that started there.
+	private static int[] makeKeepRights() {
+		int[] keep = new int[BoardSquare.values().length];
+		Arrays.fill(keep, ALL_RIGHTS);
+		keep[BoardSquare.E1.ordinal()] &= ~(Zobrist.WHITE_KINGSIDE | Zobrist.WHITE_QUEENSIDE);
+		keep[BoardSquare.H1.ordinal()] &= ~Zobrist.WHITE_KINGSIDE;
+		keep[BoardSquare.A1.ordinal()] &= ~Zobrist.WHITE_QUEENSIDE;
+		keep[BoardSquare.E8.ordinal()] &= ~(Zobrist.BLACK_KINGSIDE | Zobrist.BLACK_QUEENSIDE);
+		keep[BoardSquare.H8.ordinal()] &= ~Zobrist.BLACK_KINGSIDE;
+		keep[BoardSquare.A8.ordinal()] &= ~Zobrist.BLACK_QUEENSIDE;
+		return keep;
+	}
+	
+	private void hashPiece(PieceColor color, ChessPiece piece, BoardSquare s) {
+		long z = Zobrist.piece(color, piece, s);
+		key ^= z;
+		if (piece == ChessPiece.PAWN) {pawnKey ^= z;}
+	}
+	
+	// Called after the piece has left the board.
+	private void hashRemoval(PieceColor color, ChessPiece piece) {
+		int count = sides.get(color).count(piece);
+		materialKey ^= Zobrist.material(color, piece, count + 1) ^ Zobrist.material(color, piece, count);
+	}
+	
+	// Called after the piece has joined the board.
+	private void hashAddition(PieceColor color, ChessPiece piece) {
+		int count = sides.get(color).count(piece);
+		materialKey ^= Zobrist.material(color, piece, count - 1) ^ Zobrist.material(color, piece, count);
 	}
 	
 	private ChessSide getWhite() {return sides.get(PieceColor.WHITE);}
@@ -2,6 +2,10 @@ package chess.core;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -471,6 +475,163 @@ public class ChessboardTest {
 		assertTrue(board.isCheckmate());
 	}
 	
+	@Test
+	public void attackersTo() throws IllegalMoveException {
+		Chessboard board = new Chessboard();
+		assertEquals(new BitBoard(BoardSquare.E2, BoardSquare.G2, BoardSquare.G1), board.attackersTo(BoardSquare.F3, PieceColor.WHITE));
+		assertEquals(new BitBoard(), board.attackersTo(BoardSquare.E4, PieceColor.WHITE));
+		assertFalse(board.moverInCheck());
+		
+		board = Algebraic.from("e4", "f5", "Qh5+");
+		assertTrue(board.moverInCheck());
+		assertFalse(board.opponentInCheck());
+		assertEquals(new BitBoard(BoardSquare.H5), board.attackersTo(BoardSquare.E8, PieceColor.WHITE));
+		assertTrue(board.isAttacked(BoardSquare.F5, PieceColor.WHITE));
+		assertFalse(board.isAttacked(BoardSquare.F5, PieceColor.BLACK));
+	}
+	
+	@Test
+	public void pinsAndCheckers() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("d4", "e6", "Nc3", "Bb4");
+		assertEquals(BoardSquare.C3.getMask(), board.pinned());
+		assertEquals(0, board.checkers());
+		for (Move m: board.getLegalMoves()) {
+			assertNotEquals(BoardSquare.C3, m.getStart());
+		}
+		
+		board = Algebraic.successor(Algebraic.successor(board, "a3"), "Bxc3+");
+		assertEquals(BoardSquare.C3.getMask(), board.checkers());
+		assertEquals(0, board.pinned());
+		assertTrue(board.moverInCheck());
+	}
+	
+	@Test
+	public void castlingRights() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "e5", "Ke2", "Ke7", "Ke1", "Ke8");
+		assertFalse(board.potentialCastleKingside());
+		assertFalse(board.potentialCastleQueenside());
+		assertEquals(0, board.castlingRights());
+		
+		board = Algebraic.from("h4", "a5", "Rh3", "Ra6");
+		assertFalse(board.potentialCastleKingside());
+		assertTrue(board.potentialCastleQueenside());
+		assertEquals(Zobrist.WHITE_QUEENSIDE | Zobrist.BLACK_KINGSIDE, board.castlingRights());
+		
+		board = Algebraic.from("b3", "g6", "Bb2", "Bh6", "Bxh8");
+		assertFalse(board.potentialCastleKingside());
+		assertTrue(board.potentialCastleQueenside());
+		assertEquals(Zobrist.WHITE_KINGSIDE | Zobrist.WHITE_QUEENSIDE | Zobrist.BLACK_QUEENSIDE, board.castlingRights());
+	}
+	
+	@Test
+	public void enPassantSquare() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4");
+		assertEquals(BoardSquare.E3, board.getEnPassantSquare());
+		board = Algebraic.successor(board, "a6");
+		assertNull(board.getEnPassantSquare());
+		board = Algebraic.successor(Algebraic.successor(board, "e5"), "d5");
+		assertEquals(BoardSquare.D6, board.getEnPassantSquare());
+		assertTrue(board.getLegalMoves().contains(new Move("WHITE_PAWN_e5_d6xd5")));
+	}
+	
+	@Test
+	public void incrementalZobrist() {
+		for (Chessboard board: boards) {
+			assertEquals(Zobrist.keyOf(board), board.getZobristKey());
+			assertEquals(Zobrist.pawnKeyOf(board), board.getPawnKey());
+			assertEquals(Zobrist.materialKeyOf(board), board.getMaterialKey());
+		}
+	}
+	
+	@Test
+	public void mailboxMatchesSides() {
+		for (Chessboard board: boards) {
+			for (BoardSquare s: BoardSquare.values()) {
+				if (board.isOccupied(s)) {
+					assertTrue(board.getAllOf(board.colorAt(s), board.at(s)).isSet(s));
+				} else {
+					assertEquals(ChessPiece.EMPTY, board.at(s));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void transpositions() throws IllegalMoveException {
+		Chessboard start = new Chessboard();
+		Chessboard shuffled = Algebraic.from("Nf3", "Nf6", "Ng1", "Ng8");
+		assertEquals(start, shuffled);
+		assertEquals(start.hashCode(), shuffled.hashCode());
+		
+		assertEquals(Algebraic.from("e3", "e6", "d3", "d6"), Algebraic.from("d3", "d6", "e3", "e6"));
+		assertFalse(Algebraic.from("e4", "e5").equals(Algebraic.from("e3", "e6", "e4", "e5")));
+		assertFalse(Algebraic.from("e3").equals(Algebraic.from("e3", "e6")));
+		assertEquals(Algebraic.from("e3", "e6").getPawnKey(), Algebraic.from("e3", "e6", "Nf3").getPawnKey());
+		assertEquals(boards[20].getMaterialKey(), boards[21].getMaterialKey());
+		assertFalse(boards[21].getMaterialKey() == boards[22].getMaterialKey());
+	}
+	
+	@Test
+	public void isLegalMatchesMoveList() throws IllegalMoveException {
+		Random random = new Random(3);
+		for (Object[] position: PerftSuite.positions) {
+			Chessboard board = FEN.decode((String)position[1]);
+			List<Move> earlier = new ArrayList<Move>();
+			for (int ply = 0; ply < 60 && board.gameInProgress(); ++ply) {
+				List<Move> moves = board.getLegalMoves();
+				earlier.addAll(moves);
+				checkIsLegal(board, moves, earlier);
+				board = board.successor(moves.get(random.nextInt(moves.size())));
+			}
+		}
+	}
+	
+	@Test
+	public void remembersMovesAndStatus() throws IllegalMoveException {
+		GameHistory game = new GameHistory(Algebraic.from("f3", "e5", "g4"));
+		Chessboard board = game.getBoard();
+		List<Move> moves = board.getLegalMoves();
+		assertSame(moves, board.getLegalMoves());
+		assertSame(board.getMoveMap(), board.getMoveMap());
+		assertTrue(board.gameInProgress());
+		
+		game.makeMove(Algebraic.decode("Qh4#", board));
+		assertTrue(board.isCheckmate());
+		assertFalse(board.gameInProgress());
+		assertTrue(board.getLegalMoves().isEmpty());
+		game.unmakeMove();
+		assertSame(moves, board.getLegalMoves());
+		assertFalse(board.isCheckmate());
+		assertTrue(board.gameInProgress());
+		
+		Chessboard next = board.successor(moves.get(0));
+		assertNotSame(moves, next.getLegalMoves());
+		assertEquals(new HashSet<Move>(new Chessboard(next).getLegalMoves()), new HashSet<Move>(next.getLegalMoves()));
+	}
+	
+	// Moves from earlier positions stand in for stale hash and killer moves.
+	void checkIsLegal(Chessboard board, List<Move> moves, List<Move> earlier) throws IllegalMoveException {
+		Set<String> legal = new HashSet<String>(), squares = new HashSet<String>();
+		for (Move m: moves) {
+			legal.add(m.toString());
+			squares.add(m.getStart() + "" + m.getStop());
+		}
+		for (Move m: earlier) {
+			assertEquals(m.toString(), legal.contains(m.toString()), board.isLegal(m));
+		}
+		for (BoardSquare start: BoardSquare.values()) {
+			for (BoardSquare stop: BoardSquare.values()) {
+				boolean found = squares.contains(start + "" + stop);
+				try {
+					Move m = Algebraic.decode(start, stop, board);
+					assertTrue(m.toString(), found && legal.contains(m.toString()));
+				} catch (IllegalMoveException e) {
+					assertFalse(start + "" + stop, found);
+				}
+			}
+		}
+	}
+	
 	public void moveCheck(Chessboard board, Set<Move> goal, String boardGoal) {
 		System.out.println(sourceString(board.toString()));
 		System.out.println(board);
@@ -0,0 +1,82 @@
+package chess.core;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+import chess.hash.CuckooHashLong;
+import chess.hash.CuckooUMAS;
+
+// The original slider lookup: every occupancy pattern of a square's mask is
+// stored in a per-square cuckoo hash table.
+
+class CuckooSlides implements SlidingAttackProvider {
+	private EnumMap<ChessPiece,EnumMap<BoardSquare,BitBoard>> masks;
+	private EnumMap<ChessPiece,EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>>> slides;
+	
+	public CuckooSlides() {
+		makeMasks();
+		slides = new EnumMap<ChessPiece,EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>>>(ChessPiece.class);
+		slides.put(ChessPiece.ROOK, makeSlides(ChessPiece.ROOK, MoveGenerator.rookDirs));
+		slides.put(ChessPiece.BISHOP, makeSlides(ChessPiece.BISHOP, MoveGenerator.bishopDirs));
+	}
+	
+	@Override
+	public long rookAttacks(int square, long occupied) {
+		return lookup(ChessPiece.ROOK, BoardSquare.fromOrdinal(square), occupied);
+	}
+	
+	@Override
+	public long bishopAttacks(int square, long occupied) {
+		return lookup(ChessPiece.BISHOP, BoardSquare.fromOrdinal(square), occupied);
+	}
+	
+	// Per stored pattern: an Entry, its key and value BitBoards; plus one reference per table slot.
+	@Override
+	public int tableBytes() {
+		int total = 0;
+		for (EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>> bySquare: slides.values()) {
+			for (CuckooHashLong<BitBoard,BitBoard> table: bySquare.values()) {
+				total += 4 * table.capacity() + (32 + 24 + 24 + 4) * table.size();
+			}
+		}
+		return total;
+	}
+	
+	private long lookup(ChessPiece type, BoardSquare src, long occupied) {
+		BitBoard key = new BitBoard(occupied & masks.get(type).get(src).getBits());
+		return slides.get(type).get(src).get(key).getBits();
+	}
+	
+	private void makeMasks() {
+		masks = new EnumMap<ChessPiece,EnumMap<BoardSquare,BitBoard>>(ChessPiece.class);
+		masks.put(ChessPiece.ROOK, new EnumMap<BoardSquare,BitBoard>(BoardSquare.class));
+		masks.put(ChessPiece.BISHOP, new EnumMap<BoardSquare,BitBoard>(BoardSquare.class));
+		
+		for (BoardSquare bs: BoardSquare.values()) {
+			BitBoard rook = BitBoard.makeRookMoves(bs);
+			if (bs.onEdge()) {
+				masks.get(ChessPiece.ROOK).put(bs, rook);
+			} else {
+				masks.get(ChessPiece.ROOK).put(bs, rook.intersection(BitBoard.INTERIOR_SQUARES));
+			}
+
+			BitBoard bishop = BitBoard.makeBishopMoves(bs);
+			masks.get(ChessPiece.BISHOP).put(bs, bishop.intersection(BitBoard.INTERIOR_SQUARES));
+		}		
+	}
+	
+	private EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>> makeSlides(ChessPiece type, MoveDir[] dirs) {
+		EnumMap<BoardSquare,BitBoard> maskMap = masks.get(type);
+		EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>> result = new EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>>(BoardSquare.class);
+		for (BoardSquare s: BoardSquare.values()) {
+			ArrayList<BitBoard> combos = MoveGenerator.allCombosOf(maskMap.get(s));
+			int sizeExp = CuckooHashLong.log2(combos.size());
+			CuckooHashLong<BitBoard,BitBoard> hashed = new CuckooUMAS<BitBoard,BitBoard>(sizeExp, 2, 4);
+			for (BitBoard pattern: combos) {
+				hashed.put(pattern, MoveGenerator.legalMarchFor(s, dirs, pattern));
+			}
+			result.put(s, hashed);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,74 @@
+package chess.core;
+
+// Occupancy-indexed tables without a magic multiply: the occupied bits under
+// a square's relevant mask are gathered one by one into a dense index (a
+// software PEXT), which addresses a table of exactly 2^bits entries.
+
+class DirectIndexAttacks implements SlidingAttackProvider {
+	private Table rook, bishop;
+	
+	public DirectIndexAttacks() {
+		rook = new Table(MoveGenerator.rookDirs);
+		bishop = new Table(MoveGenerator.bishopDirs);
+	}
+	
+	@Override
+	public long rookAttacks(int square, long occupied) {
+		return rook.lookup(square, occupied);
+	}
+	
+	@Override
+	public long bishopAttacks(int square, long occupied) {
+		return bishop.lookup(square, occupied);
+	}
+	
+	@Override
+	public int tableBytes() {
+		return rook.tableBytes() + bishop.tableBytes();
+	}
+	
+	static int extract(long occupied, long mask) {
+		int index = 0;
+		int bit = 1;
+		while (mask != 0) {
+			long low = mask & -mask;
+			if ((occupied & low) != 0) {index |= bit;}
+			bit <<= 1;
+			mask ^= low;
+		}
+		return index;
+	}
+	
+	private static class Table {
+		long[] masks = new long[64];
+		int[] offsets = new int[64];
+		long[] attacks;
+		
+		Table(MoveDir[] dirs) {
+			int total = 0;
+			for (BoardSquare s: BoardSquare.values()) {
+				masks[s.ordinal()] = MagicAttacks.relevantMask(s, dirs);
+				offsets[s.ordinal()] = total;
+				total += 1 << Long.bitCount(masks[s.ordinal()]);
+			}
+			attacks = new long[total];
+			for (BoardSquare s: BoardSquare.values()) {
+				long mask = masks[s.ordinal()];
+				long subset = 0;
+				do {
+					long legal = MoveGenerator.legalMarchFor(s, dirs, new BitBoard(subset)).getBits();
+					attacks[offsets[s.ordinal()] + extract(subset, mask)] = legal;
+					subset = (subset - mask) & mask;
+				} while (subset != 0);
+			}
+		}
+		
+		long lookup(int square, long occupied) {
+			return attacks[offsets[square] + extract(occupied, masks[square])];
+		}
+		
+		int tableBytes() {
+			return 8 * attacks.length + 8 * masks.length + 4 * offsets.length;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package chess.core;
+
+// Reference:
+//
+// S. J. Edwards, "Portable Game Notation Specification and Implementation
+// Guide", 1994, section 16.1 (Forsyth-Edwards Notation).
+//
+// Builds boards straight from the six FEN fields: placement, side to move,
+// castling, en passant target, halfmove clock and fullmove number. The last
+// two may be left off, as in EPD; they default to 0 and 1.
+
+public class FEN {
+	public final static String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private final static String CASTLES = "KQkq";
+	private final static int[] CASTLE_BITS = new int[]{Zobrist.WHITE_KINGSIDE, Zobrist.WHITE_QUEENSIDE, Zobrist.BLACK_KINGSIDE, Zobrist.BLACK_QUEENSIDE};
+	// King square, then rook square, for each of CASTLES
+	private final static BoardSquare[][] CASTLE_HOMES = new BoardSquare[][]{
+		{BoardSquare.E1, BoardSquare.H1}, {BoardSquare.E1, BoardSquare.A1}, {BoardSquare.E8, BoardSquare.H8}, {BoardSquare.E8, BoardSquare.A8}
+	};
+
+	private FEN() {}
+
+	public static Chessboard decode(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 4 || fields.length > 6) {
+			throw new IllegalArgumentException("Expected 4 to 6 fields in FEN: " + fen);
+		}
+		ChessSide white = ChessSide.makeEmpty(PieceColor.WHITE), black = ChessSide.makeEmpty(PieceColor.BLACK);
+		placePieces(fields[0], white, black, fen);
+		if (Long.bitCount(white.bitsOf(ChessPiece.KING)) != 1 || Long.bitCount(black.bitsOf(ChessPiece.KING)) != 1) {
+			throw new IllegalArgumentException("Each side needs exactly one king: " + fen);
+		}
+
+		PieceColor turn;
+		if (fields[1].equals("w")) {
+			turn = PieceColor.WHITE;
+		} else if (fields[1].equals("b")) {
+			turn = PieceColor.BLACK;
+		} else {
+			throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+		}
+
+		int castling = castlingOf(fields[2], white, black, fen);
+		int enPassant = enPassantOf(fields[3], turn, turn == PieceColor.WHITE ? black : white, fen);
+		int halfmoveClock = fields.length > 4 ? numberOf(fields[4], 0, fen) : 0;
+		int fullmoves = fields.length > 5 ? numberOf(fields[5], 1, fen) : 1;
+		int startPly = 2 * (fullmoves - 1) + (turn == PieceColor.BLACK ? 1 : 0);
+
+		Chessboard board = new Chessboard(white, black, turn, castling, enPassant, halfmoveClock, startPly);
+		if (board.opponentInCheck()) {
+			throw new IllegalArgumentException("Side not to move is in check: " + fen);
+		}
+		return board;
+	}
+
+	public static String encode(Chessboard board) {
+		StringBuilder sb = new StringBuilder();
+		int empty = 0;
+		for (BoardSquare s: BoardSquare.values()) {
+			if (board.at(s) == ChessPiece.EMPTY) {
+				empty += 1;
+			} else {
+				if (empty > 0) {sb.append(empty);}
+				empty = 0;
+				char symbol = board.at(s).symbol();
+				sb.append(board.colorAt(s) == PieceColor.WHITE ? symbol : Character.toLowerCase(symbol));
+			}
+			if (s.fileNum() == 8) {
+				if (empty > 0) {sb.append(empty);}
+				empty = 0;
+				if (s.rankNum() > 1) {sb.append('/');}
+			}
+		}
+
+		sb.append(board.getMoverColor() == PieceColor.WHITE ? " w " : " b ");
+		int rights = board.castlingRights();
+		for (int i = 0; i < CASTLES.length(); ++i) {
+			if ((rights & CASTLE_BITS[i]) != 0) {sb.append(CASTLES.charAt(i));}
+		}
+		if (rights == 0) {sb.append('-');}
+		BoardSquare enPassant = board.getEnPassantSquare();
+		sb.append(' ').append(enPassant == null ? "-" : enPassant.toString());
+		sb.append(' ').append(board.getHalfmoveClock());
+		sb.append(' ').append(board.getFullmoveNumber());
+		return sb.toString();
+	}
+
+	private static void placePieces(String placement, ChessSide white, ChessSide black, String fen) {
+		String[] ranks = placement.split("/", -1);
+		if (ranks.length != 8) {
+			throw new IllegalArgumentException("Expected 8 ranks in FEN: " + fen);
+		}
+		for (int row = 0; row < 8; ++row) {
+			int file = 0;
+			for (char c: ranks[row].toCharArray()) {
+				if (c >= '1' && c <= '8') {
+					file += c - '0';
+				} else {
+					ChessPiece piece = pieceFor(Character.toUpperCase(c));
+					if (piece == null || file >= 8) {
+						throw new IllegalArgumentException("Bad rank " + ranks[row] + " in FEN: " + fen);
+					}
+					BoardSquare s = BoardSquare.fromOrdinal(8 * row + file);
+					if (piece == ChessPiece.PAWN && (s.rankNum() == 1 || s.rankNum() == 8)) {
+						throw new IllegalArgumentException("Pawn on back rank in FEN: " + fen);
+					}
+					(Character.isUpperCase(c) ? white : black).add(piece, s);
+					file += 1;
+				}
+			}
+			if (file != 8) {
+				throw new IllegalArgumentException("Bad rank " + ranks[row] + " in FEN: " + fen);
+			}
+		}
+	}
+
+	// Rights whose king or rook is not on its home square are dropped, since
+	// move generation takes a castling right to mean both are there.
+	private static int castlingOf(String field, ChessSide white, ChessSide black, String fen) {
+		if (field.equals("-")) {return 0;}
+		int castling = 0;
+		for (char c: field.toCharArray()) {
+			int i = CASTLES.indexOf(c);
+			if (i < 0) {
+				throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+			}
+			ChessSide side = i < 2 ? white : black;
+			if (side.at(CASTLE_HOMES[i][0]) == ChessPiece.KING && side.at(CASTLE_HOMES[i][1]) == ChessPiece.ROOK) {
+				castling |= CASTLE_BITS[i];
+			}
+		}
+		return castling;
+	}
+
+	// The pawn that skipped the square must be just past it.
+	private static int enPassantOf(String field, PieceColor turn, ChessSide pusher, String fen) {
+		if (field.equals("-")) {return Chessboard.NO_SQUARE;}
+		int rank = turn == PieceColor.WHITE ? 6 : 3;
+		if (field.length() != 2 || field.charAt(0) < 'a' || field.charAt(0) > 'h' || field.charAt(1) != '0' + rank) {
+			throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+		}
+		int square = 8 * (8 - rank) + field.charAt(0) - 'a';
+		BoardSquare pawn = BoardSquare.fromOrdinal(turn == PieceColor.WHITE ? square + 8 : square - 8);
+		if (pusher.at(pawn) != ChessPiece.PAWN) {
+			throw new IllegalArgumentException("No pawn passed the en passant square in FEN: " + fen);
+		}
+		return square;
+	}
+
+	private static int numberOf(String field, int least, String fen) {
+		int n;
+		try {
+			n = Integer.parseInt(field);
+		} catch (NumberFormatException e) {
+			n = least - 1;
+		}
+		if (n < least) {
+			throw new IllegalArgumentException("Bad move counter " + field + " in FEN: " + fen);
+		}
+		return n;
+	}
+
+	private static ChessPiece pieceFor(char symbol) {
+		for (ChessPiece p: ChessPiece.onBoard) {
+			if (p.symbol() == symbol) {return p;}
+		}
+		return null;
+	}
+}
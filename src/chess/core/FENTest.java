@@ -0,0 +1,74 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class FENTest {
+	@Test
+	public void startPosition() {
+		Chessboard board = FEN.decode(FEN.START);
+		assertEquals(new Chessboard().toString(), board.toString());
+		assertEquals(new Chessboard().getZobristKey(), board.getZobristKey());
+		assertEquals(FEN.START, FEN.encode(new Chessboard()));
+	}
+
+	@Test
+	public void roundTrip() {
+		for (Object[] position: PerftSuite.positions) {
+			assertEquals((String)position[1], FEN.encode(FEN.decode((String)position[1])));
+		}
+	}
+
+	@Test
+	public void matchesPlayedGame() throws IllegalMoveException {
+		Chessboard played = Algebraic.from("e4", "c5", "Nf3", "d6", "Bb5+");
+		Chessboard board = FEN.decode("rnbqkbnr/pp2pppp/3p4/1Bp5/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 1 3");
+		assertEquals(played.toString(), board.toString());
+		assertEquals(played.getZobristKey(), board.getZobristKey());
+		assertTrue(board.moverInCheck());
+		assertEquals(FEN.encode(played), FEN.encode(board));
+	}
+
+	@Test
+	public void counters() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "e5", "Nf3", "Nc6", "Bc4");
+		assertEquals(3, board.getHalfmoveClock());
+		assertEquals(3, board.getFullmoveNumber());
+		assertEquals("e3", FEN.encode(Algebraic.from("e4")).split(" ")[3]);
+		assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", FEN.encode(Algebraic.from("e4")));
+
+		board = FEN.decode("4k3/8/8/8/8/8/8/R3K2R b KQ - 37 60");
+		assertEquals(60, board.getFullmoveNumber());
+		board = board.successor(Algebraic.decode("Kd7", board));
+		assertEquals(38, board.getHalfmoveClock());
+		assertEquals(61, board.getFullmoveNumber());
+	}
+
+	@Test
+	public void castlingNeedsKingAndRook() {
+		assertEquals("4k3/8/8/8/8/8/8/4K2R w K - 0 1", FEN.encode(FEN.decode("4k3/8/8/8/8/8/8/4K2R w KQkq - 0 1")));
+	}
+
+	@Test
+	public void rejects() {
+		String[] bad = new String[]{
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+			"rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e3 0 1",
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1",
+			"rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1",
+			"4k3/8/8/8/8/8/8/4K2R w - - 0 1 extra",
+			"4k3/8/8/8/8/8/8/4R2K w - - 0 1",
+		};
+		for (String fen: bad) {
+			try {
+				FEN.decode(fen);
+				fail(fen);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package chess.core;
+
+import java.util.Arrays;
+
+// The moves of one game (or search) on a single board, as a ply-indexed
+// stack of Zobrist keys and undo records. Boards no longer point back to
+// the boards they came from, so a long game keeps one board alive rather
+// than a chain of copies, and repetitions are found by comparing keys.
+
+public class GameHistory {
+	private Chessboard board;
+	private long[] keys;
+	private MoveUndo[] undos;
+	private int ply;
+	
+	public GameHistory(Chessboard start) {
+		board = new Chessboard(start);
+		keys = new long[16];
+		undos = new MoveUndo[16];
+		for (int i = 0; i < undos.length; ++i) {
+			undos[i] = new MoveUndo();
+		}
+		keys[0] = board.getZobristKey();
+		ply = 0;
+	}
+	
+	public GameHistory(GameHistory that) {
+		board = new Chessboard(that.board);
+		keys = that.keys.clone();
+		undos = new MoveUndo[that.undos.length];
+		for (int i = 0; i < undos.length; ++i) {
+			undos[i] = new MoveUndo();
+			if (i < that.ply) {undos[i].copy(that.undos[i]);}
+		}
+		ply = that.ply;
+	}
+	
+	// The current position; it changes under every makeMove() and unmakeMove().
+	public Chessboard getBoard() {return board;}
+	
+	public int getPly() {return ply;}
+	
+	public long getKey(int ply) {
+		if (ply < 0 || ply > this.ply) {throw new IndexOutOfBoundsException("No ply " + ply);}
+		return keys[ply];
+	}
+	
+	public void makeMove(Move m) {
+		if (ply + 1 == undos.length) {grow();}
+		board.makeMove(m, undos[ply]);
+		ply += 1;
+		keys[ply] = board.getZobristKey();
+	}
+	
+	public void unmakeMove() {
+		if (ply == 0) {throw new IllegalStateException("No move to unmake.");}
+		ply -= 1;
+		board.unmakeMove(undos[ply]);
+	}
+	
+	// How many earlier positions in this history are the same as the current one.
+	// Only positions with the same side to move can match, so every other ply is checked,
+	// and none from before the last capture or pawn move, which cannot recur.
+	public int repetitions() {
+		int count = 0;
+		int oldest = Math.max(0, ply - board.getHalfmoveClock());
+		for (int i = ply - 2; i >= oldest; i -= 2) {
+			if (keys[i] == keys[ply]) {count += 1;}
+		}
+		return count;
+	}
+	
+	public boolean isRepetition() {
+		return repetitions() > 0;
+	}
+	
+	private void grow() {
+		MoveUndo[] bigger = new MoveUndo[undos.length * 2];
+		System.arraycopy(undos, 0, bigger, 0, undos.length);
+		for (int i = undos.length; i < bigger.length; ++i) {
+			bigger[i] = new MoveUndo();
+		}
+		undos = bigger;
+		keys = Arrays.copyOf(keys, bigger.length);
+	}
+}
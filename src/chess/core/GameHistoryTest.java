@@ -0,0 +1,60 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class GameHistoryTest {
+	String[] shuffle = new String[]{"Nf3", "Nf6", "Ng1", "Ng8"};
+	
+	@Test
+	public void repetitions() throws IllegalMoveException {
+		GameHistory game = new GameHistory(new Chessboard());
+		assertEquals(0, game.repetitions());
+		play(game, shuffle);
+		assertEquals(1, game.repetitions());
+		assertEquals(game.getKey(0), game.getKey(4));
+		play(game, shuffle);
+		assertEquals(2, game.repetitions());
+		game.unmakeMove();
+		assertEquals(7, game.getPly());
+		assertEquals(1, game.repetitions());
+		game.makeMove(Algebraic.decode("Nc6", game.getBoard()));
+		assertFalse(game.isRepetition());
+	}
+	
+	@Test
+	public void undoToStart() throws IllegalMoveException {
+		Chessboard start = new Chessboard();
+		GameHistory game = new GameHistory(start);
+		play(game, "e4", "d5", "exd5", "Qxd5", "Nc3", "Qa5", "d4", "c6", "Nf3", "Bg4");
+		for (int i = 0; i < 10; ++i) {
+			game.unmakeMove();
+		}
+		assertEquals(start, game.getBoard());
+		assertEquals(start.toString(), game.getBoard().toString());
+	}
+	
+	@Test
+	public void searchSeesGame() throws IllegalMoveException {
+		GameHistory game = new GameHistory(new Chessboard());
+		play(game, "Nf3", "Nf6", "Ng1");
+		SearchBoard position = new SearchBoard(game);
+		assertFalse(position.isRepetition());
+		position.makeMove(Algebraic.decode("Ng8", position.getBoard()));
+		assertTrue(position.isRepetition());
+		assertEquals(1, position.getPly());
+		assertEquals(3, game.getPly());
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void unmakeAtStart() {
+		new GameHistory(new Chessboard()).unmakeMove();
+	}
+	
+	void play(GameHistory game, String... moves) throws IllegalMoveException {
+		for (String move: moves) {
+			game.makeMove(Algebraic.decode(move, game.getBoard()));
+		}
+	}
+}
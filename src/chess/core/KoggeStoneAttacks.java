@@ -0,0 +1,55 @@
+package chess.core;
+
+// Reference: https://www.chessprogramming.org/Kogge-Stone_Algorithm
+//
+// Parallel-prefix occluded fills: each direction is flooded from the slider
+// through empty squares in three shift steps. Needs no tables at all.
+
+class KoggeStoneAttacks implements SlidingAttackProvider {
+	private final static long NO_FILE_A = BitBoard.NO_FILE_A.getBits();
+	private final static long NO_FILE_H = BitBoard.NO_FILE_H.getBits();
+	private final static long ALL = ~0L;
+	
+	@Override
+	public long rookAttacks(int square, long occupied) {
+		long slider = 1L << square;
+		long empty = ~occupied;
+		return up(slider, empty, 8, ALL) | down(slider, empty, 8, ALL)
+				| up(slider, empty, 1, NO_FILE_A) | down(slider, empty, 1, NO_FILE_H);
+	}
+	
+	@Override
+	public long bishopAttacks(int square, long occupied) {
+		long slider = 1L << square;
+		long empty = ~occupied;
+		return up(slider, empty, 9, NO_FILE_A) | up(slider, empty, 7, NO_FILE_H)
+				| down(slider, empty, 7, NO_FILE_A) | down(slider, empty, 9, NO_FILE_H);
+	}
+	
+	@Override
+	public int tableBytes() {
+		return 0;
+	}
+	
+	// Toward higher square ordinals (south on the board).
+	private static long up(long gen, long pro, int step, long wrap) {
+		pro &= wrap;
+		gen |= pro & (gen << step);
+		pro &= (pro << step);
+		gen |= pro & (gen << (2 * step));
+		pro &= (pro << (2 * step));
+		gen |= pro & (gen << (4 * step));
+		return (gen << step) & wrap;
+	}
+	
+	// Toward lower square ordinals (north on the board).
+	private static long down(long gen, long pro, int step, long wrap) {
+		pro &= wrap;
+		gen |= pro & (gen >>> step);
+		pro &= (pro >>> step);
+		gen |= pro & (gen >>> (2 * step));
+		pro &= (pro >>> (2 * step));
+		gen |= pro & (gen >>> (4 * step));
+		return (gen >>> step) & wrap;
+	}
+}
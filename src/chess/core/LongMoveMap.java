@@ -0,0 +1,237 @@
+package chess.core;
+
+// Legal move generation on plain longs. Where MoveMap builds BitBoards and
+// EnumMaps for every position, this keeps everything in primitive fields
+// and the board's cached checkers and pins, so once the JIT has warmed up,
+// building the moves for a position allocates nothing. Keep one instance per thread (a
+// SearchBoard keeps its own) and reuse it from position to position.
+//
+// Moves are written to the caller's int[] in PackedMove form. Captures
+// come first, then quiet moves; the set of moves matches MoveMap's.
+//
+// A pseudo-legal map skips the check, pin and king-danger masks, so its
+// moves may leave the mover's king attacked. Whoever plays them tests
+// Chessboard.opponentInCheck() after the ones Chessboard.mayExposeKing()
+// picks out and takes back those that fail, so moves a search never gets
+// to are never checked. Castling is still checked in full.
+
+public class LongMoveMap {
+	private final static long WHITE_JUMP_RANK = 0x000000FF00000000L, BLACK_JUMP_RANK = 0x00000000FF000000L;
+	private final static long ALL = -1L;
+	private final static ChessPiece[] promotions = new ChessPiece[]{ChessPiece.QUEEN, ChessPiece.ROOK, ChessPiece.BISHOP, ChessPiece.KNIGHT};
+
+	private MoveGenerator gen;
+	private boolean pseudoLegal;
+
+	private Chessboard board;
+	private PieceColor mover;
+	private int king;
+	private long own, enemy, occupied, danger, checkers, pinned, checkMask;
+
+	public LongMoveMap() {
+		this(false);
+	}
+	
+	public LongMoveMap(boolean pseudoLegal) {
+		this(MoveMap.moveMaker);
+		this.pseudoLegal = pseudoLegal;
+	}
+
+	LongMoveMap(MoveGenerator gen) {
+		this.gen = gen;
+	}
+	
+	public boolean isPseudoLegal() {return pseudoLegal;}
+
+	// Writes the legal moves of board, for the side to move, from buffer[0]; returns how many.
+	public int makeMoves(Chessboard board, int[] buffer) {
+		setup(board);
+		int count = 0;
+		count = addCaptures(buffer, count);
+		count = addQuiets(buffer, count);
+		return count;
+	}
+	
+	// Captures, including en passant and capturing promotions, written from buffer[start].
+	public int makeCaptures(Chessboard board, int[] buffer, int start) {
+		setup(board);
+		return addCaptures(buffer, start);
+	}
+	
+	// Everything else, including castling and non-capturing promotions, written from buffer[start].
+	public int makeQuiets(Chessboard board, int[] buffer, int start) {
+		setup(board);
+		return addQuiets(buffer, start);
+	}
+
+	// The rest of these describe the last board passed to makeMoves().
+	long getCheckers() {return checkers;}
+	long getPinned() {return pinned;}
+	long getDanger() {return danger;}
+
+	private void setup(Chessboard board) {
+		this.board = board;
+		mover = board.getMoverColor();
+		PieceColor other = mover.other();
+		own = board.occupancy(mover);
+		enemy = board.occupancy(other);
+		occupied = own | enemy;
+		king = Long.numberOfTrailingZeros(board.bitsOf(mover, ChessPiece.KING));
+		if (pseudoLegal) {
+			danger = checkers = pinned = 0;
+			checkMask = ALL;
+			return;
+		}
+		danger = gen.attacksBy(board, other, occupied & ~(1L << king));
+		checkers = board.checkers();
+		pinned = board.pinned();
+
+		if (checkers == 0) {
+			checkMask = ALL;
+		} else if (Long.bitCount(checkers) == 1) {
+			int checker = Long.numberOfTrailingZeros(checkers);
+			checkMask = checkers | MoveGenerator.squaresBetween(king, checker);
+		} else {
+			checkMask = 0;
+		}
+	}
+
+	private long allowed(int square) {
+		return (pinned & (1L << square)) == 0 ? checkMask : checkMask & MoveGenerator.lineThrough(king, square);
+	}
+
+	private long pieceAttacks(ChessPiece piece, int square) {
+		switch (piece) {
+		case KNIGHT: return MoveGenerator.knightAttacks(square);
+		case BISHOP: return gen.bishopAttacks(square, occupied);
+		case ROOK: return gen.rookAttacks(square, occupied);
+		case QUEEN: return gen.rookAttacks(square, occupied) | gen.bishopAttacks(square, occupied);
+		default: return MoveGenerator.kingAttacks(square) & ~danger;
+		}
+	}
+
+	private int addCaptures(int[] buffer, int count) {
+		long pawns = board.bitsOf(mover, ChessPiece.PAWN);
+		for (long bits = pawns; bits != 0; bits &= bits - 1) {
+			int start = Long.numberOfTrailingZeros(bits);
+			long targets = MoveGenerator.pawnAttacks(mover, start) & enemy & allowed(start);
+			count = addPawnMoves(buffer, count, start, targets);
+		}
+		count = addEnPassant(buffer, count, pawns);
+
+		for (ChessPiece piece: ChessPiece.onBoard) {
+			if (piece != ChessPiece.PAWN) {
+				for (long bits = board.bitsOf(mover, piece); bits != 0; bits &= bits - 1) {
+					int start = Long.numberOfTrailingZeros(bits);
+					long mask = piece == ChessPiece.KING ? ALL : allowed(start);
+					count = addPieceMoves(buffer, count, piece, start, pieceAttacks(piece, start) & enemy & mask);
+				}
+			}
+		}
+		return count;
+	}
+
+	private int addQuiets(int[] buffer, int count) {
+		long empty = ~occupied;
+		for (ChessPiece piece: ChessPiece.onBoard) {
+			if (piece != ChessPiece.PAWN) {
+				for (long bits = board.bitsOf(mover, piece); bits != 0; bits &= bits - 1) {
+					int start = Long.numberOfTrailingZeros(bits);
+					long mask = piece == ChessPiece.KING ? ALL : allowed(start);
+					count = addPieceMoves(buffer, count, piece, start, pieceAttacks(piece, start) & empty & mask);
+				}
+			}
+		}
+		count = addCastles(buffer, count);
+
+		for (long bits = board.bitsOf(mover, ChessPiece.PAWN); bits != 0; bits &= bits - 1) {
+			int start = Long.numberOfTrailingZeros(bits);
+			long advance = pawnAdvance(mover, 1L << start) & empty;
+			long jump = pawnAdvance(mover, advance) & empty & (mover == PieceColor.WHITE ? WHITE_JUMP_RANK : BLACK_JUMP_RANK);
+			count = addPawnMoves(buffer, count, start, (advance | jump) & allowed(start));
+		}
+		return count;
+	}
+
+	private int addPieceMoves(int[] buffer, int count, ChessPiece piece, int start, long targets) {
+		BoardSquare from = BoardSquare.fromOrdinal(start);
+		for (; targets != 0; targets &= targets - 1) {
+			BoardSquare to = BoardSquare.fromOrdinal(Long.numberOfTrailingZeros(targets));
+			int move = PackedMove.pack(mover, piece, from, to);
+			buffer[count++] = (enemy & to.getMask()) != 0 ? PackedMove.withCapture(move, board.at(to)) : move;
+		}
+		return count;
+	}
+
+	private int addPawnMoves(int[] buffer, int count, int start, long targets) {
+		BoardSquare from = BoardSquare.fromOrdinal(start);
+		for (; targets != 0; targets &= targets - 1) {
+			BoardSquare to = BoardSquare.fromOrdinal(Long.numberOfTrailingZeros(targets));
+			int move = PackedMove.pack(mover, ChessPiece.PAWN, from, to);
+			if ((enemy & to.getMask()) != 0) {
+				move = PackedMove.withCapture(move, board.at(to));
+			}
+			if (to.pawnEnd(mover)) {
+				for (ChessPiece promo: promotions) {
+					buffer[count++] = PackedMove.withPromotion(move, promo);
+				}
+			} else {
+				buffer[count++] = move;
+			}
+		}
+		return count;
+	}
+
+	// The captured pawn and the capturing pawn both leave their rank, so
+	// legality is checked against the occupancy after the capture.
+	private int addEnPassant(int[] buffer, int count, long pawns) {
+		int file = board.enPassantFile();
+		if (file < 0) {return count;}
+		int victim = (mover == PieceColor.WHITE ? 24 : 32) + file;
+		int target = (mover == PieceColor.WHITE ? 16 : 40) + file;
+		long targetBit = 1L << target, victimBit = 1L << victim;
+		for (long bits = MoveGenerator.pawnAttacks(mover.other(), target) & pawns; bits != 0; bits &= bits - 1) {
+			int start = Long.numberOfTrailingZeros(bits);
+			long after = (occupied ^ (1L << start) ^ victimBit) | targetBit;
+			if (pseudoLegal || (gen.attackersTo(board, king, mover.other(), after) & ~victimBit) == 0) {
+				int move = PackedMove.pack(mover, ChessPiece.PAWN, BoardSquare.fromOrdinal(start), BoardSquare.fromOrdinal(target));
+				buffer[count++] = PackedMove.withEnPassant(move);
+			}
+		}
+		return count;
+	}
+
+	private int addCastles(int[] buffer, int count) {
+		int rights = board.castlingRights();
+		long rooks = board.bitsOf(mover, ChessPiece.ROOK);
+		if (mover == PieceColor.WHITE) {
+			count = tryCastle(buffer, count, rights & Zobrist.WHITE_KINGSIDE, rooks, 63, 62, 0x6000000000000000L);
+			count = tryCastle(buffer, count, rights & Zobrist.WHITE_QUEENSIDE, rooks, 56, 58, 0x0E00000000000000L);
+		} else {
+			count = tryCastle(buffer, count, rights & Zobrist.BLACK_KINGSIDE, rooks, 7, 6, 0x60L);
+			count = tryCastle(buffer, count, rights & Zobrist.BLACK_QUEENSIDE, rooks, 0, 2, 0x0EL);
+		}
+		return count;
+	}
+
+	private int tryCastle(int[] buffer, int count, int right, long rooks, int rook, int target, long path) {
+		long kingPath = MoveGenerator.squaresBetween(king, target) | (1L << target);
+		if (right != 0 && (rooks & (1L << rook)) != 0 && (occupied & path) == 0 && isSafe(kingPath | (1L << king))) {
+			buffer[count++] = PackedMove.pack(mover, ChessPiece.KING, BoardSquare.fromOrdinal(king), BoardSquare.fromOrdinal(target));
+		}
+		return count;
+	}
+
+	// Whether no enemy piece attacks any of squares.
+	private boolean isSafe(long squares) {
+		if (!pseudoLegal) {return (danger & squares) == 0;}
+		for (; squares != 0; squares &= squares - 1) {
+			if (gen.attackersTo(board, Long.numberOfTrailingZeros(squares), mover.other(), occupied) != 0) {return false;}
+		}
+		return true;
+	}
+
+	private static long pawnAdvance(PieceColor color, long pawns) {
+		return color == PieceColor.WHITE ? pawns >>> 8 : pawns << 8;
+	}
+}
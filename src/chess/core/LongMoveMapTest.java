@@ -0,0 +1,139 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.*;
+
+public class LongMoveMapTest {
+	String[][] games = new String[][]{
+		{"e4", "c5", "Nf3", "d6", "d4", "cxd4", "c4", "dxc3", "Bb5+", "Bd7", "e5", "Bxb5", "Qd3", "f5",
+			"O-O", "Qd7", "a4", "Nc6", "axb5", "cxb2", "Nc3", "bxa1=Q", "Qxf5", "a6", "Qh5+", "g6", "h3", "O-O-O"},
+		{"d4", "e6", "e4", "d5", "e5", "c5", "c3", "Nc6", "Nf3", "Qb6", "a3", "c4", "Nbd2", "Na5", "Be2", "Bd7",
+			"O-O", "Ne7", "Rb1", "Nb3", "Nxb3", "cxb3", "Bd3", "Bb5", "Bxb5+", "Qxb5", "Qxb3", "Qxb3"},
+		{"e4", "e5", "f4", "exf4", "Nf3", "g5", "h4", "g4", "Ne5", "Nf6", "d4", "d6", "Nd3", "Nxe4", "Bxf4", "Qe7",
+			"Qe2", "Bg7", "c3", "h5", "Nd2", "Nxd2", "Kxd2", "Qxe2+", "Bxe2", "Bf5"},
+		{"e4", "d5", "e5", "f5", "exf6", "e5", "d4", "Bb4+", "c3", "Qe7", "fxg7", "Qh4", "Nf3", "Qxf2+", "Kxf2", "Bc5", "gxh8=N"}
+	};
+
+	@Test
+	public void agreesWithMoveMap() throws IllegalMoveException {
+		int[] buffer = new int[PackedMove.MAX_MOVES];
+		LongMoveMap map = new LongMoveMap();
+		for (Chessboard board: positions()) {
+			assertSameMoves(board, map, buffer);
+			for (Move m: board.getLegalMoves()) {
+				assertSameMoves(board.successor(m), map, buffer);
+			}
+		}
+	}
+
+	@Test
+	public void searchBoardBuffers() throws IllegalMoveException {
+		Chessboard board = Algebraic.from(games[0]);
+		SearchBoard position = new SearchBoard(board);
+		int count = position.generateMoves();
+		Set<Move> moves = new HashSet<>();
+		for (int i = 0; i < count; ++i) {
+			moves.add(PackedMove.toMove(position.getMoves()[i]));
+		}
+		assertEquals(new HashSet<>(board.getLegalMoves()), moves);
+	}
+
+	@Test
+	public void allocationFree() throws IllegalMoveException {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)bean;
+		Assume.assumeTrue(counter.isThreadAllocatedMemorySupported());
+		counter.setThreadAllocatedMemoryEnabled(true);
+
+		Chessboard[] boards = positions().toArray(new Chessboard[0]);
+		LongMoveMap map = new LongMoveMap();
+		int[] buffer = new int[PackedMove.MAX_MOVES];
+		long thread = Thread.currentThread().getId();
+		int total = 0;
+		for (int i = 0; i < 2000; ++i) {
+			for (Chessboard board: boards) {
+				total += map.makeMoves(board, buffer);
+			}
+		}
+		long before = counter.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < 100; ++i) {
+			for (Chessboard board: boards) {
+				total += map.makeMoves(board, buffer);
+			}
+		}
+		long after = counter.getThreadAllocatedBytes(thread);
+		assertTrue(total > 0);
+		assertEquals(0, after - before);
+	}
+
+	@Test
+	public void statusAllocationFree() throws IllegalMoveException {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)bean;
+		Assume.assumeTrue(counter.isThreadAllocatedMemorySupported());
+		counter.setThreadAllocatedMemoryEnabled(true);
+
+		List<GameHistory> games = new ArrayList<>();
+		List<Move> replies = new ArrayList<>();
+		for (Chessboard board: positions()) {
+			if (board.gameInProgress()) {
+				games.add(new GameHistory(board));
+				replies.add(board.getLegalMoves().get(0));
+			}
+		}
+		long thread = Thread.currentThread().getId();
+		int inProgress = 0;
+		for (int round = 0; round < 2; ++round) {
+			long before = counter.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < (round == 0 ? 2000 : 100); ++i) {
+				for (int g = 0; g < games.size(); ++g) {
+					games.get(g).makeMove(replies.get(g));
+					if (games.get(g).getBoard().gameInProgress()) {inProgress += 1;}
+					games.get(g).unmakeMove();
+				}
+			}
+			if (round == 1) {assertEquals(0, counter.getThreadAllocatedBytes(thread) - before);}
+		}
+		assertTrue(inProgress > 0);
+	}
+
+	ArrayList<Chessboard> positions() throws IllegalMoveException {
+		ArrayList<Chessboard> result = new ArrayList<>();
+		for (String[] game: games) {
+			Chessboard board = new Chessboard();
+			result.add(board);
+			for (String move: game) {
+				board = board.successor(Algebraic.decode(move, board));
+				result.add(board);
+			}
+		}
+		return result;
+	}
+
+	void assertSameMoves(Chessboard board, LongMoveMap map, int[] buffer) {
+		int count = map.makeMoves(board, buffer);
+		Set<String> found = new HashSet<>();
+		for (int i = 0; i < count; ++i) {
+			assertTrue(board.toString(), found.add(PackedMove.toMove(buffer[i]).toString()));
+		}
+		assertEquals(board.toString(), namesOf(board.getLegalMoves()), found);
+	}
+	
+	// Move.equals() ignores the promotion piece, so compare by name.
+	Set<String> namesOf(List<Move> moves) {
+		Set<String> names = new HashSet<>();
+		for (Move m: moves) {
+			names.add(m.toString());
+		}
+		return names;
+	}
+}
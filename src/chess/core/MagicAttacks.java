@@ -0,0 +1,180 @@
+package chess.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import chess.hash.XORShiftRandom;
+
+// Reference:
+//
+// P. Kannan, "Magic Move-Bitboard Generation in Computer Chess", 2007.
+// https://www.chessprogramming.org/Magic_Bitboards
+//
+// For each square, the relevant occupancy (the slider's rays, minus the last
+// square of each ray) is multiplied by a magic constant; the top bits of the
+// product index straight into a flat table of precomputed attack sets.
+// Magics are found by a seeded random search, one fork/join task per square,
+// so every run builds identical tables. When a MagicSnapshot has been written
+// next to this class, the tables are read from it and the search is skipped.
+
+class MagicAttacks implements SlidingAttackProvider {
+	private final static long SEED = 0x2545F4914F6CDD1DL;
+
+	private Table rook, bishop;
+
+	public MagicAttacks() {
+		this(MagicSnapshot.load());
+	}
+
+	// snapshot is {rook, bishop}, or null to search for the magics.
+	MagicAttacks(Table[] snapshot) {
+		if (snapshot != null) {
+			rook = snapshot[0];
+			bishop = snapshot[1];
+		} else {
+			rook = new Table(MoveGenerator.rookDirs, SEED);
+			bishop = new Table(MoveGenerator.bishopDirs, ~SEED);
+		}
+	}
+
+	Table getRookTable() {return rook;}
+	Table getBishopTable() {return bishop;}
+
+	@Override
+	public long rookAttacks(int square, long occupied) {
+		return rook.lookup(square, occupied);
+	}
+
+	@Override
+	public long bishopAttacks(int square, long occupied) {
+		return bishop.lookup(square, occupied);
+	}
+
+	public long queenAttacks(int square, long occupied) {
+		return rook.lookup(square, occupied) | bishop.lookup(square, occupied);
+	}
+
+	@Override
+	public int tableBytes() {
+		return rook.tableBytes() + bishop.tableBytes();
+	}
+
+	static long relevantMask(BoardSquare start, MoveDir[] dirs) {
+		long mask = 0;
+		for (MoveDir dir: dirs) {
+			BoardSquare where = start;
+			while (where.hasSuccessor(dir) && where.successor(dir).hasSuccessor(dir)) {
+				where = where.successor(dir);
+				mask |= where.getMask();
+			}
+		}
+		return mask;
+	}
+
+	static class Table {
+		long[] masks = new long[64];
+		long[] magics = new long[64];
+		int[] shifts = new int[64];
+		int[] offsets = new int[64];
+		long[] attacks;
+
+		Table(long[] masks, long[] magics, int[] shifts, int[] offsets, long[] attacks) {
+			this.masks = masks;
+			this.magics = magics;
+			this.shifts = shifts;
+			this.offsets = offsets;
+			this.attacks = attacks;
+		}
+
+		Table(MoveDir[] dirs, long seed) {
+			long[][] found = new long[64][];
+			List<Search> searches = new ArrayList<>();
+			int total = 0;
+			for (BoardSquare s: BoardSquare.values()) {
+				int sq = s.ordinal();
+				masks[sq] = relevantMask(s, dirs);
+				int bits = Long.bitCount(masks[sq]);
+				shifts[sq] = 64 - bits;
+				offsets[sq] = total;
+				searches.add(new Search(this, s, dirs, bits, new XORShiftRandom(seed + sq), found));
+				total += 1 << bits;
+			}
+			ForkJoinTask.invokeAll(searches);
+			attacks = new long[total];
+			for (int sq = 0; sq < 64; ++sq) {
+				System.arraycopy(found[sq], 0, attacks, offsets[sq], found[sq].length);
+			}
+		}
+
+		long lookup(int square, long occupied) {
+			return attacks[offsets[square] + (int)(((occupied & masks[square]) * magics[square]) >>> shifts[square])];
+		}
+
+		int tableBytes() {
+			return 8 * attacks.length + 8 * (masks.length + magics.length) + 4 * (shifts.length + offsets.length);
+		}
+
+		private long[] findMagic(BoardSquare s, MoveDir[] dirs, int bits, XORShiftRandom random) {
+			int sq = s.ordinal();
+			long mask = masks[sq];
+			int size = 1 << bits;
+			long[] occupancies = new long[size];
+			long[] reference = new long[size];
+			long subset = 0;
+			for (int i = 0; i < size; ++i) {
+				occupancies[i] = subset;
+				reference[i] = MoveGenerator.legalMarchFor(s, dirs, new BitBoard(subset)).getBits();
+				subset = (subset - mask) & mask;
+			}
+
+			long[] table = new long[size];
+			for (;;) {
+				long magic = random.nextLong() & random.nextLong() & random.nextLong();
+				if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {continue;}
+				Arrays.fill(table, 0);
+				boolean works = true;
+				for (int i = 0; i < size && works; ++i) {
+					int index = (int)((occupancies[i] * magic) >>> (64 - bits));
+					if (table[index] == 0) {
+						table[index] = reference[i];
+					} else if (table[index] != reference[i]) {
+						works = false;
+					}
+				}
+				if (works) {
+					magics[sq] = magic;
+					return table;
+				}
+			}
+		}
+	}
+
+	// Each square gets its own generator, so the result does not depend on
+	// the order the squares finish in.
+	@SuppressWarnings("serial")
+	private static class Search extends RecursiveAction {
+		private Table table;
+		private BoardSquare square;
+		private MoveDir[] dirs;
+		private int bits;
+		private XORShiftRandom random;
+		private long[][] found;
+
+		Search(Table table, BoardSquare square, MoveDir[] dirs, int bits, XORShiftRandom random, long[][] found) {
+			this.table = table;
+			this.square = square;
+			this.dirs = dirs;
+			this.bits = bits;
+			this.random = random;
+			this.found = found;
+		}
+
+		@Override
+		protected void compute() {
+			found[square.ordinal()] = table.findMagic(square, dirs, bits, random);
+		}
+	}
+}
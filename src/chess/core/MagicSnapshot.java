@@ -0,0 +1,148 @@
+package chess.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import chess.core.MagicAttacks.Table;
+
+// The magic tables, saved so startup can skip the magic search. The file
+// is checked in as src/chess/core/magic-tables.bin, which the build copies
+// next to MagicAttacks.class; after changing the search or the layout,
+// write it again with
+//
+//   java chess.core.MagicSnapshot src/chess/core/magic-tables.bin
+//
+// MagicAttacks maps it in when it is there. A missing, truncated or
+// corrupt file is not an error; the tables are just searched for again.
+//
+// Layout, big-endian:
+//   int     FORMAT
+//   int     VERSION
+//   int     payload length in bytes
+//   long    CRC32 of the payload
+//   payload: rook table, then bishop table, each as
+//     long[64] masks, long[64] magics, int[64] shifts, int[64] offsets,
+//     int attack count, long[count] attacks
+
+class MagicSnapshot {
+	final static String RESOURCE = "magic-tables.bin";
+	private final static int FORMAT = 0x4D414743, VERSION = 1;
+	final static int HEADER_BYTES = 20;
+
+	private MagicSnapshot() {}
+
+	// Returns {rook, bishop}, or null if there is no usable snapshot.
+	static Table[] load() {
+		URL url = MagicSnapshot.class.getResource(RESOURCE);
+		if (url == null) {return null;}
+		try {
+			return read(bytesOf(url));
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static Table[] read(ByteBuffer buffer) {
+		if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != FORMAT || buffer.getInt() != VERSION) {return null;}
+		int length = buffer.getInt();
+		long crc = buffer.getLong();
+		if (length != buffer.remaining()) {return null;}
+		ByteBuffer payload = buffer.slice();
+		CRC32 check = new CRC32();
+		check.update(payload.duplicate());
+		if (check.getValue() != crc) {return null;}
+
+		Table rook = readTable(payload, MoveGenerator.rookDirs);
+		Table bishop = rook == null ? null : readTable(payload, MoveGenerator.bishopDirs);
+		return bishop == null || payload.hasRemaining() ? null : new Table[]{rook, bishop};
+	}
+
+	static byte[] write(Table rook, Table bishop) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream payload = new DataOutputStream(bytes);
+		writeTable(payload, rook);
+		writeTable(payload, bishop);
+		payload.flush();
+		return frame(bytes.toByteArray());
+	}
+
+	// Puts the header in front of a payload.
+	static byte[] frame(byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body);
+
+		ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + body.length);
+		out.putInt(FORMAT).putInt(VERSION).putInt(body.length).putLong(crc.getValue()).put(body);
+		return out.array();
+	}
+
+	public static void main(String[] args) throws IOException {
+		MagicAttacks magics = new MagicAttacks(null);
+		try (FileOutputStream out = new FileOutputStream(args[0])) {
+			out.write(write(magics.getRookTable(), magics.getBishopTable()));
+		}
+	}
+
+	private static ByteBuffer bytesOf(URL url) throws IOException, URISyntaxException {
+		if ("file".equals(url.getProtocol())) {
+			try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+		try (InputStream in = url.openStream()) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] chunk = new byte[1 << 16];
+			for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+				bytes.write(chunk, 0, n);
+			}
+			return ByteBuffer.wrap(bytes.toByteArray());
+		}
+	}
+
+	// The masks are cheap to rebuild, so they double as a check that the
+	// snapshot was made for this board layout.
+	private static Table readTable(ByteBuffer in, MoveDir[] dirs) {
+		long[] masks = new long[64], magics = new long[64];
+		int[] shifts = new int[64], offsets = new int[64];
+		in.asLongBuffer().get(masks);
+		in.position(in.position() + 8 * 64);
+		in.asLongBuffer().get(magics);
+		in.position(in.position() + 8 * 64);
+		in.asIntBuffer().get(shifts);
+		in.position(in.position() + 4 * 64);
+		in.asIntBuffer().get(offsets);
+		in.position(in.position() + 4 * 64);
+		int total = 0;
+		for (BoardSquare s: BoardSquare.values()) {
+			int sq = s.ordinal();
+			if (masks[sq] != MagicAttacks.relevantMask(s, dirs) || shifts[sq] != 64 - Long.bitCount(masks[sq]) || offsets[sq] != total) {
+				return null;
+			}
+			total += 1 << (64 - shifts[sq]);
+		}
+		if (in.getInt() != total) {return null;}
+		long[] attacks = new long[total];
+		in.asLongBuffer().get(attacks);
+		in.position(in.position() + 8 * total);
+		return new Table(masks, magics, shifts, offsets, attacks);
+	}
+
+	private static void writeTable(DataOutputStream out, Table table) throws IOException {
+		for (long mask: table.masks) {out.writeLong(mask);}
+		for (long magic: table.magics) {out.writeLong(magic);}
+		for (int shift: table.shifts) {out.writeInt(shift);}
+		for (int offset: table.offsets) {out.writeInt(offset);}
+		out.writeInt(table.attacks.length);
+		for (long attack: table.attacks) {out.writeLong(attack);}
+	}
+}
@@ -6,7 +6,6 @@ public class Move implements Comparable<Move> {
 	private BoardSquare start, stop, capture;
 	private boolean hasCapture, canCapture, willPromote;
 	private String str;
-	private int hash;
 	
 	public Move(String s) {
 		String[] parts = s.split("_");
@@ -29,7 +28,6 @@ public class Move implements Comparable<Move> {
 		}
 		
 		this.canCapture = (hasCapture || piece != ChessPiece.PAWN);
-		strHash();
 	}
 	
 	public Move(PieceColor color, ChessPiece piece, BoardSquare start, BoardSquare stop) {
@@ -38,26 +36,22 @@ public class Move implements Comparable<Move> {
 		this.start = start;
 		this.stop = stop;
 		this.hasCapture = false;
-		strHash();
 	}
 	
 	public Move(PieceColor color, ChessPiece piece, BoardSquare start, BoardSquare stop, BoardSquare capture) {
 		this(color, piece, start, stop);
 		addCapture(capture);
-		strHash();
 	}
 	
 	public Move(PieceColor color, ChessPiece piece, BoardSquare start, BoardSquare stop, ChessPiece promotion) {
 		this(color, piece, start, stop);
 		addPromotion(promotion);
-		strHash();
 	}
 	
 	public Move(PieceColor color, ChessPiece piece, BoardSquare start, BoardSquare stop, BoardSquare capture, ChessPiece promotion) {
 		this(color, piece, start, stop);
 		addCapture(capture);
 		addPromotion(promotion);
-		strHash();
 	}
 	
 	private void addCapture(BoardSquare capture) {
@@ -76,11 +70,11 @@ public class Move implements Comparable<Move> {
 		this.promoteTo = promotion;
 	}
 	 
-	private void strHash() {
-		this.str = color.toString() + "_" + piece.toString() + "_"  + start.toString() + "_"  + stop.toString();
-		if (hasCapture) {this.str += "x" + capture.toString();}
-		if (willPromote) {this.str += "=" + promoteTo.toString();}
-		this.hash = this.str.hashCode();		
+	private String makeString() {
+		String result = color.toString() + "_" + piece.toString() + "_"  + start.toString() + "_"  + stop.toString();
+		if (hasCapture) {result += "x" + capture.toString();}
+		if (willPromote) {result += "=" + promoteTo.toString();}
+		return result;
 	}
 	
 	public ChessPiece getPiece() {return piece;}
@@ -108,11 +102,13 @@ public class Move implements Comparable<Move> {
 	}
 	
 	public String toString() {
+		if (str == null) {str = makeString();}
 		return str;
 	}
 	
+	// Covers exactly the fields compared by equals().
 	public int hashCode() {
-		return hash;
+		return start.ordinal() | (stop.ordinal() << 6) | (piece.ordinal() << 12) | (color.ordinal() << 15);
 	}
 
 	@Override
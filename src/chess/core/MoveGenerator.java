@@ -2,190 +2,206 @@ package chess.core;
 
 import java.util.*;
 
-import chess.hash.CuckooHashLong;
-import chess.hash.CuckooUMAS;
+// Board geometry lives in flat static tables indexed by square ordinal
+// (start * 64 + end for pairs of squares, color * 64 + square for pawns),
+// so each lookup is a single array load. Only the sliders depend on the
+// instance, through its SlidingAttackProvider.
 
 class MoveGenerator {
-	private EnumMap<ChessPiece,EnumMap<BoardSquare,BitBoard>> moves;
-	private EnumMap<ChessPiece,EnumMap<BoardSquare,BitBoard>> masks;
-	private EnumMap<ChessPiece,EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>>> slides;
-	private EnumMap<ChessPiece,MoveDir[]> pieceDirs;
-	private EnumMap<BoardSquare,EnumMap<BoardSquare,EnumSet<BoardSquare>>> between;
-	private EnumMap<BoardSquare,EnumMap<BoardSquare,BitBoard>> rayMasksBetween;
-	private EnumMap<PieceColor,EnumMap<BoardSquare,BitBoard>> cancelledPawnMoves;
-	private EnumMap<PieceColor,EnumMap<BoardSquare,BitBoard>> cancelledPawnEast;
-	private EnumMap<PieceColor,EnumMap<BoardSquare,BitBoard>> cancelledPawnWest;
-	private EnumMap<PieceColor,EnumMap<MoveDir,BoardSquare>> castleRookStarts;
+	private final static long[] KNIGHT = new long[64], KING = new long[64];
+	private final static long[] PAWN_ATTACKS = new long[2 * 64];
+	private final static long[] CANCELLED_ADVANCES = new long[2 * 64], CANCELLED_EAST = new long[2 * 64], CANCELLED_WEST = new long[2 * 64];
+	private final static long[] BETWEEN = new long[64 * 64], LINE = new long[64 * 64];
 	
+	private SlidingAttackProvider sliders;
+	
+	final static long FILE_A = 0x0101010101010101L, FILE_H = 0x8080808080808080L;
 	final static MoveDir[] rookDirs = new MoveDir[]{MoveDir.N, MoveDir.E, MoveDir.S, MoveDir.W};
 	final static MoveDir[] bishopDirs = new MoveDir[]{MoveDir.NW, MoveDir.NE, MoveDir.SE, MoveDir.SW};
+	final static String[] sliderNames = new String[]{"magic", "cuckoo", "ray-scan", "kogge-stone", "direct"};
 	
-	public MoveGenerator() {
-		makePieceDirs();
-		makeMovesMasks();
-		makeSlides();
-		makeBetweens();
+	static {
+		makeSteps();
+		makeLines();
 		makeCancelledPawns();
-		makeCastleRookStarts();
-	}
-	
-	public BitBoard retrieveMovesFor(BoardSquare src, ChessPiece type, BitBoard allPieces) {
-		if (type == ChessPiece.ROOK) {
-			return new BitBoard(retrieveSlidingMovesFor(ChessPiece.ROOK, src, allPieces));
-		} else if (type == ChessPiece.BISHOP) {
-			return new BitBoard(retrieveSlidingMovesFor(ChessPiece.BISHOP, src, allPieces));
-		} else if (type == ChessPiece.QUEEN) {
-			BitBoard fromRook = retrieveSlidingMovesFor(ChessPiece.ROOK, src, allPieces);
-			BitBoard fromBishop = retrieveSlidingMovesFor(ChessPiece.BISHOP, src, allPieces);
-			return fromRook.union(fromBishop);
-		} else {
-			return new BitBoard(moves.get(type).get(src));
-		}
 	}
 	
-	public boolean between(BoardSquare start, BoardSquare end, BoardSquare candidate) {
-		return between.get(start).get(end).contains(candidate);
+	public MoveGenerator() {
+		this(new MagicAttacks());
 	}
 	
-	public BitBoard rayMaskBetween(BoardSquare start, BoardSquare end) {
-		return new BitBoard(rayMasksBetween.get(start).get(end));
+	public MoveGenerator(SlidingAttackProvider sliders) {
+		this.sliders = sliders;
 	}
 	
-	public BitBoard cancelledPawnMoves(PieceColor color, BoardSquare pawnAt) {
-		return new BitBoard(cancelledPawnMoves.get(color).get(pawnAt));
+	// Destinations for any piece but a pawn, with sliders blocked by occupancy.
+	long movesFor(int square, ChessPiece type, long occupied) {
+		switch (type) {
+		case ROOK: return sliders.rookAttacks(square, occupied);
+		case BISHOP: return sliders.bishopAttacks(square, occupied);
+		case QUEEN: return sliders.rookAttacks(square, occupied) | sliders.bishopAttacks(square, occupied);
+		case KNIGHT: return KNIGHT[square];
+		case KING: return KING[square];
+		default: throw new IllegalArgumentException("No table for " + type);
+		}
 	}
 	
-	public BitBoard cancelledPawnWest(PieceColor color, BoardSquare pawnAt, BoardSquare pinner) {
-		BitBoard result = new BitBoard(cancelledPawnWest.get(color).get(pawnAt));
-		result.set(pinner);
-		return result;
+	public SlidingAttackProvider getSliders() {
+		return sliders;
 	}
 	
-	public BitBoard cancelledPawnEast(PieceColor color, BoardSquare pawnAt, BoardSquare pinner) {
-		BitBoard result = new BitBoard(cancelledPawnEast.get(color).get(pawnAt));
-		result.set(pinner);
-		return result;
+	long rookAttacks(int square, long occupied) {return sliders.rookAttacks(square, occupied);}
+	long bishopAttacks(int square, long occupied) {return sliders.bishopAttacks(square, occupied);}
+	
+	static long pawnAttacks(PieceColor color, int square) {return PAWN_ATTACKS[color.ordinal() * 64 + square];}
+	static long knightAttacks(int square) {return KNIGHT[square];}
+	static long kingAttacks(int square) {return KING[square];}
+	
+	// Squares strictly between two squares on a shared rank, file or diagonal; empty otherwise.
+	static long squaresBetween(int start, int end) {return BETWEEN[start * 64 + end];}
+	
+	// The whole rank, file or diagonal through two squares, edge to edge; empty if they share none.
+	static long lineThrough(int a, int b) {return LINE[a * 64 + b];}
+	
+	// Everything except the squares a pawn on pawnAt could advance or capture to.
+	static long cancelledPawnMoves(PieceColor color, int pawnAt) {return CANCELLED_ADVANCES[color.ordinal() * 64 + pawnAt];}
+	static long cancelledPawnEast(PieceColor color, int pawnAt) {return CANCELLED_EAST[color.ordinal() * 64 + pawnAt];}
+	static long cancelledPawnWest(PieceColor color, int pawnAt) {return CANCELLED_WEST[color.ordinal() * 64 + pawnAt];}
+	
+	static BoardSquare getCastleRook(PieceColor color, MoveDir dir) {
+		if (color == PieceColor.WHITE) {
+			return dir == MoveDir.E ? BoardSquare.H1 : BoardSquare.A1;
+		} else {
+			return dir == MoveDir.E ? BoardSquare.H8 : BoardSquare.A8;
+		}
 	}
 	
-	public BoardSquare getCastleRook(PieceColor color, MoveDir dir) {
-		return castleRookStarts.get(color).get(dir);
+	// Pieces of the given color that attack square, with sliders blocked by occupancy.
+	long attackersTo(Chessboard board, int square, PieceColor color, long occupancy) {
+		long straight = board.bitsOf(color, ChessPiece.ROOK) | board.bitsOf(color, ChessPiece.QUEEN);
+		long diagonal = board.bitsOf(color, ChessPiece.BISHOP) | board.bitsOf(color, ChessPiece.QUEEN);
+		return (pawnAttacks(color.other(), square) & board.bitsOf(color, ChessPiece.PAWN))
+				| (KNIGHT[square] & board.bitsOf(color, ChessPiece.KNIGHT))
+				| (KING[square] & board.bitsOf(color, ChessPiece.KING))
+				| (sliders.bishopAttacks(square, occupancy) & diagonal)
+				| (sliders.rookAttacks(square, occupancy) & straight);
 	}
 	
-	private void makePieceDirs() {
-		pieceDirs = new EnumMap<ChessPiece,MoveDir[]>(ChessPiece.class);
-		pieceDirs.put(ChessPiece.BISHOP, bishopDirs);
-		pieceDirs.put(ChessPiece.ROOK, rookDirs);
+	// Every square attacked by a color, with sliders blocked by occupancy.
+	long attacksBy(Chessboard board, PieceColor color, long occupancy) {
+		long result = 0;
+		for (long bits = board.bitsOf(color, ChessPiece.PAWN); bits != 0; bits &= bits - 1) {
+			result |= pawnAttacks(color, Long.numberOfTrailingZeros(bits));
+		}
+		for (long bits = board.bitsOf(color, ChessPiece.KNIGHT); bits != 0; bits &= bits - 1) {
+			result |= KNIGHT[Long.numberOfTrailingZeros(bits)];
+		}
+		for (long bits = board.bitsOf(color, ChessPiece.BISHOP) | board.bitsOf(color, ChessPiece.QUEEN); bits != 0; bits &= bits - 1) {
+			result |= sliders.bishopAttacks(Long.numberOfTrailingZeros(bits), occupancy);
+		}
+		for (long bits = board.bitsOf(color, ChessPiece.ROOK) | board.bitsOf(color, ChessPiece.QUEEN); bits != 0; bits &= bits - 1) {
+			result |= sliders.rookAttacks(Long.numberOfTrailingZeros(bits), occupancy);
+		}
+		for (long bits = board.bitsOf(color, ChessPiece.KING); bits != 0; bits &= bits - 1) {
+			result |= KING[Long.numberOfTrailingZeros(bits)];
+		}
+		return result;
 	}
 	
-	private void makeMovesMasks() {
-		moves = new EnumMap<ChessPiece,EnumMap<BoardSquare,BitBoard>>(ChessPiece.class);
-		moves.put(ChessPiece.KNIGHT, new EnumMap<BoardSquare,BitBoard>(BoardSquare.class));
-		moves.put(ChessPiece.KING, new EnumMap<BoardSquare,BitBoard>(BoardSquare.class));
-
-		masks = new EnumMap<ChessPiece,EnumMap<BoardSquare,BitBoard>>(ChessPiece.class);
-		masks.put(ChessPiece.ROOK, new EnumMap<BoardSquare,BitBoard>(BoardSquare.class));
-		masks.put(ChessPiece.BISHOP, new EnumMap<BoardSquare,BitBoard>(BoardSquare.class));
-		
-		for (BoardSquare bs: BoardSquare.values()) {
-			moves.get(ChessPiece.KNIGHT).put(bs, BitBoard.makeKnightMoves(bs));
-			moves.get(ChessPiece.KING).put(bs, BitBoard.makeKingMoves(bs));
-			
-			BitBoard rook = BitBoard.makeRookMoves(bs);
-			if (bs.onEdge()) {
-				masks.get(ChessPiece.ROOK).put(bs, rook);
-			} else {
-				masks.get(ChessPiece.ROOK).put(bs, rook.intersection(BitBoard.INTERIOR_SQUARES));
+	// Pieces of the given color pinned to the king on square: x-ray from the
+	// king through enemy pieces only, and keep the lines with exactly one blocker.
+	long pinnedTo(Chessboard board, int king, PieceColor color) {
+		PieceColor other = color.other();
+		long enemies = board.occupancy(other), occupied = board.occupancy();
+		long straight = board.bitsOf(other, ChessPiece.ROOK) | board.bitsOf(other, ChessPiece.QUEEN);
+		long diagonal = board.bitsOf(other, ChessPiece.BISHOP) | board.bitsOf(other, ChessPiece.QUEEN);
+		long pinners = (sliders.rookAttacks(king, enemies) & straight) | (sliders.bishopAttacks(king, enemies) & diagonal);
+		long pinned = 0;
+		for (; pinners != 0; pinners &= pinners - 1) {
+			long blockers = BETWEEN[king * 64 + Long.numberOfTrailingZeros(pinners)] & occupied;
+			if (Long.bitCount(blockers) == 1) {
+				pinned |= blockers & board.occupancy(color);
 			}
-
-			BitBoard bishop = BitBoard.makeBishopMoves(bs);
-			masks.get(ChessPiece.BISHOP).put(bs, bishop.intersection(BitBoard.INTERIOR_SQUARES));
-		}		
+		}
+		return pinned;
+	}
+	
+	// Picks a slider backend by name, so each deployment can choose one (e.g. -Dchess.sliders=kogge-stone).
+	static SlidingAttackProvider makeSliders(String name) {
+		if (name.equals("magic")) {
+			return new MagicAttacks();
+		} else if (name.equals("cuckoo")) {
+			return new CuckooSlides();
+		} else if (name.equals("ray-scan")) {
+			return new RayScanAttacks();
+		} else if (name.equals("kogge-stone")) {
+			return new KoggeStoneAttacks();
+		} else if (name.equals("direct")) {
+			return new DirectIndexAttacks();
+		} else {
+			throw new IllegalArgumentException("Unknown slider backend " + name);
+		}
 	}
 	
-	private void makeSlides() {
-		slides = new EnumMap<ChessPiece,EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>>>(ChessPiece.class);
-		slides.put(ChessPiece.ROOK, makeSlides(ChessPiece.ROOK));
-		slides.put(ChessPiece.BISHOP, makeSlides(ChessPiece.BISHOP));		
+	// Squares attacked by a set of pawns; also defined for squares no pawn can stand on.
+	static long pawnAttacks(PieceColor color, long pawns) {
+		if (color == PieceColor.WHITE) {
+			return ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7);
+		} else {
+			return ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9);
+		}
+	}
+	
+	private static void makeSteps() {
+		for (BoardSquare bs: BoardSquare.values()) {
+			int sq = bs.ordinal();
+			KNIGHT[sq] = BitBoard.makeKnightMoves(bs).getBits();
+			KING[sq] = BitBoard.makeKingMoves(bs).getBits();
+			PAWN_ATTACKS[PieceColor.WHITE.ordinal() * 64 + sq] = pawnAttacks(PieceColor.WHITE, bs.getMask());
+			PAWN_ATTACKS[PieceColor.BLACK.ordinal() * 64 + sq] = pawnAttacks(PieceColor.BLACK, bs.getMask());
+		}
 	}
 	
-	private void makeBetweens() {
-		rayMasksBetween = new EnumMap<BoardSquare,EnumMap<BoardSquare,BitBoard>>(BoardSquare.class);
-		between = new EnumMap<BoardSquare,EnumMap<BoardSquare,EnumSet<BoardSquare>>>(BoardSquare.class);
+	private static void makeLines() {
 		for (BoardSquare start: BoardSquare.values()) {
-			EnumMap<BoardSquare,EnumSet<BoardSquare>> inner = new EnumMap<BoardSquare,EnumSet<BoardSquare>>(BoardSquare.class);
-			EnumMap<BoardSquare,BitBoard> rays = new EnumMap<BoardSquare,BitBoard>(BoardSquare.class);
 			for (BoardSquare end: BoardSquare.values()) {
 				MoveDir vector = MoveDir.between(start, end);
-				EnumSet<BoardSquare> found = EnumSet.noneOf(BoardSquare.class);
-				BitBoard rayMask = new BitBoard();
-				rayMask.set(start);
 				if (vector != MoveDir.NONE) {
+					int pair = start.ordinal() * 64 + end.ordinal();
 					for (BoardSquare candidate: BoardSquare.values()) {
+						if (MoveDir.between(start, candidate) == vector || MoveDir.between(candidate, start) == vector) {
+							LINE[pair] |= start.getMask() | candidate.getMask();
+						}
 						if (MoveDir.between(start, candidate) == vector && MoveDir.between(candidate, end) == vector) {
-							found.add(candidate);
+							BETWEEN[pair] |= candidate.getMask();
 						}
 					}
-					
-					BoardSquare rayAt = start;
-					while (rayAt != end) {
-						rayAt = rayAt.successor(vector);
-						rayMask.set(rayAt);
-					}
 				}
-				rays.put(end, rayMask);
-				inner.put(end, found);
 			}
-			between.put(start, inner);
-			rayMasksBetween.put(start, rays);
 		}
 	}
 	
-	private void makeCancelledPawns() {
-		cancelledPawnMoves = new EnumMap<PieceColor,EnumMap<BoardSquare,BitBoard>>(PieceColor.class);
-		cancelledPawnEast = new EnumMap<PieceColor,EnumMap<BoardSquare,BitBoard>>(PieceColor.class);
-		cancelledPawnWest = new EnumMap<PieceColor,EnumMap<BoardSquare,BitBoard>>(PieceColor.class);
+	private static void makeCancelledPawns() {
 		for (PieceColor color: PieceColor.values()) {
-			EnumMap<BoardSquare,BitBoard> colorCancelled = new EnumMap<BoardSquare,BitBoard>(BoardSquare.class);
-			EnumMap<BoardSquare,BitBoard> colorEast = new EnumMap<BoardSquare,BitBoard>(BoardSquare.class);
-			EnumMap<BoardSquare,BitBoard> colorWest = new EnumMap<BoardSquare,BitBoard>(BoardSquare.class);
 			for (BoardSquare s: BoardSquare.values()) {
-				BitBoard cancelled = new BitBoard().negation();
-				BitBoard cancelEast = new BitBoard().negation();
-				BitBoard cancelWest = new BitBoard().negation();
+				int index = color.ordinal() * 64 + s.ordinal();
+				long cancelled = ~0L, cancelEast = ~0L, cancelWest = ~0L;
 				if (!s.pawnImpossible()) {
 					BoardSquare advance = s.pawnAdvanceFrom(color);
-					cancelled.clear(advance);
+					cancelled &= ~advance.getMask();
 					if (s.pawnStart(color)) {
-						cancelled.clear(advance.pawnAdvanceFrom(color));
+						cancelled &= ~advance.pawnAdvanceFrom(color).getMask();
 					}
-					if (s.hasPawnEast()) {cancelEast.clear(s.pawnCaptureEast(color));}
-					if (s.hasPawnWest()) {cancelWest.clear(s.pawnCaptureWest(color));}
+					if (s.hasPawnEast()) {cancelEast &= ~s.pawnCaptureEast(color).getMask();}
+					if (s.hasPawnWest()) {cancelWest &= ~s.pawnCaptureWest(color).getMask();}
 				}
-				colorCancelled.put(s, cancelled);
-				colorEast.put(s, cancelEast);
-				colorWest.put(s, cancelWest);
+				CANCELLED_ADVANCES[index] = cancelled;
+				CANCELLED_EAST[index] = cancelEast;
+				CANCELLED_WEST[index] = cancelWest;
 			}
-			cancelledPawnMoves.put(color, colorCancelled);
-			cancelledPawnEast.put(color, colorEast);
-			cancelledPawnWest.put(color, colorWest);
 		}
 	}
 	
-	private EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>> makeSlides(ChessPiece type) {
-		EnumMap<BoardSquare,BitBoard> maskMap = masks.get(type);
-		EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>> result = new EnumMap<BoardSquare,CuckooHashLong<BitBoard,BitBoard>>(BoardSquare.class);
-		for (BoardSquare s: BoardSquare.values()) {
-			ArrayList<BitBoard> combos = allCombosOf(maskMap.get(s));
-			int sizeExp = CuckooHashLong.log2(combos.size());
-			CuckooHashLong<BitBoard,BitBoard> hashed = new CuckooUMAS<BitBoard,BitBoard>(sizeExp, 2, 4);
-			for (BitBoard pattern: combos) {
-				hashed.put(pattern, legalMarchFor(s, pieceDirs.get(type), pattern));
-			}
-			result.put(s, hashed);
-		}
-		return result;
-	}
-	
 	static BitBoard legalMarchFor(BoardSquare start, MoveDir[] dirs, BitBoard pattern) {
 		BitBoard legal = new BitBoard();
 		for (MoveDir dir: dirs) {
@@ -227,20 +243,4 @@ class MoveGenerator {
 			combos.add(mask);
 		}
 	}
-	
-	private BitBoard retrieveSlidingMovesFor(ChessPiece type, BoardSquare src, BitBoard allPieces) {
-		BitBoard key = allPieces.intersection(masks.get(type).get(src));
-		return slides.get(type).get(src).get(key);
-	}
-	
-	private void makeCastleRookStarts() {
-		castleRookStarts = new EnumMap<PieceColor,EnumMap<MoveDir,BoardSquare>>(PieceColor.class);
-		castleRookStarts.put(PieceColor.WHITE, new EnumMap<MoveDir,BoardSquare>(MoveDir.class));
-		castleRookStarts.put(PieceColor.BLACK, new EnumMap<MoveDir,BoardSquare>(MoveDir.class));
-		
-		castleRookStarts.get(PieceColor.WHITE).put(MoveDir.E, BoardSquare.H1);
-		castleRookStarts.get(PieceColor.WHITE).put(MoveDir.W, BoardSquare.A1);
-		castleRookStarts.get(PieceColor.BLACK).put(MoveDir.E, BoardSquare.H8);
-		castleRookStarts.get(PieceColor.BLACK).put(MoveDir.W, BoardSquare.A8);
-	}
 }
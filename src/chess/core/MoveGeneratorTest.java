@@ -2,10 +2,13 @@ package chess.core;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.*;
 
@@ -35,4 +38,67 @@ public class MoveGeneratorTest {
 		assertEquals(new BitBoard("00100000\n00000000\n00000000\n00000000\n00000000\n00000000\n00000000\n00000000\n"), combos.get(6));
 		assertEquals(new BitBoard("00000000\n00000000\n00000000\n00000000\n00000000\n00000000\n00000000\n00000000\n"), combos.get(7));
 	}
+	
+	@Test
+	public void slidersAgree() {
+		SlidingAttackProvider reference = new CuckooSlides();
+		Random random = new Random(3);
+		long[] occupancies = new long[500];
+		for (int i = 0; i < occupancies.length; ++i) {
+			occupancies[i] = random.nextLong() & random.nextLong();
+		}
+		for (String name: MoveGenerator.sliderNames) {
+			SlidingAttackProvider sliders = MoveGenerator.makeSliders(name);
+			for (long occupied: occupancies) {
+				for (int sq = 0; sq < 64; ++sq) {
+					assertEquals(name, reference.rookAttacks(sq, occupied), sliders.rookAttacks(sq, occupied));
+					assertEquals(name, reference.bishopAttacks(sq, occupied), sliders.bishopAttacks(sq, occupied));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void magicsMatchMarch() {
+		MagicAttacks magics = new MagicAttacks();
+		BitBoard occupied = new BitBoard("00000000\n00010000\n00010000\n00010000\n00000000\n01000110\n00000000\n00000000\n");
+		assertEquals(MoveGenerator.legalMarchFor(BoardSquare.D3, MoveGenerator.rookDirs, occupied).getBits(), 
+				magics.rookAttacks(BoardSquare.D3.ordinal(), occupied.getBits()));
+		assertEquals(MoveGenerator.legalMarchFor(BoardSquare.D3, MoveGenerator.bishopDirs, occupied).getBits(), 
+				magics.bishopAttacks(BoardSquare.D3.ordinal(), occupied.getBits()));
+	}
+	
+	@Test
+	public void snapshotRoundTrip() throws IOException {
+		MagicAttacks searched = new MagicAttacks(null);
+		byte[] bytes = MagicSnapshot.write(searched.getRookTable(), searched.getBishopTable());
+		MagicAttacks loaded = new MagicAttacks(MagicSnapshot.read(ByteBuffer.wrap(bytes)));
+		Random random = new Random(5);
+		for (int i = 0; i < 200; ++i) {
+			long occupied = random.nextLong() & random.nextLong();
+			for (int sq = 0; sq < 64; ++sq) {
+				assertEquals(searched.rookAttacks(sq, occupied), loaded.rookAttacks(sq, occupied));
+				assertEquals(searched.bishopAttacks(sq, occupied), loaded.bishopAttacks(sq, occupied));
+			}
+		}
+	}
+	
+	@Test
+	public void corruptSnapshot() throws IOException {
+		MagicAttacks searched = new MagicAttacks(null);
+		byte[] bytes = MagicSnapshot.write(searched.getRookTable(), searched.getBishopTable());
+		bytes[bytes.length / 2] ^= 1;
+		assertNull(MagicSnapshot.read(ByteBuffer.wrap(bytes)));
+		assertNull(MagicSnapshot.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 8))));
+		
+		bytes[bytes.length / 2] ^= 1;
+		byte[] longer = Arrays.copyOfRange(bytes, MagicSnapshot.HEADER_BYTES, bytes.length + 8);
+		assertNotNull(MagicSnapshot.read(ByteBuffer.wrap(MagicSnapshot.frame(Arrays.copyOf(longer, longer.length - 8)))));
+		assertNull(MagicSnapshot.read(ByteBuffer.wrap(MagicSnapshot.frame(longer))));
+	}
+	
+	@Test
+	public void checkedInSnapshotLoads() {
+		assertNotNull(MagicSnapshot.load());
+	}
 }
@@ -9,7 +9,7 @@ public class MoveMap {
 	private EnumMap<BoardSquare,BitBoard> pieceMoves;
 	private boolean isValidated;
 	final static private ChessPiece[] promotions = new ChessPiece[]{ChessPiece.QUEEN, ChessPiece.ROOK, ChessPiece.BISHOP, ChessPiece.KNIGHT};
-	private static MoveGenerator moveMaker = new MoveGenerator();
+	static MoveGenerator moveMaker = new MoveGenerator(MoveGenerator.makeSliders(System.getProperty("chess.sliders", "magic")));
 	
 	public MoveMap(Chessboard board, PieceColor mover) {
 		this.board = board;
@@ -29,7 +29,7 @@ public class MoveMap {
 				} else {
 					BitBoard piecesAt = board.getAllOf(mover, type);
 					for (BoardSquare start: piecesAt) {
-						BitBoard movesFor = moveMaker.retrieveMovesFor(start, board.at(start), board.allPieces());
+						BitBoard movesFor = new BitBoard(moveMaker.movesFor(start.ordinal(), type, board.occupancy()));
 						defenseMap.addAll(movesFor.intersection(friendlyPiecesPresent));
 						addMovesFor(start, movesFor.intersection(friendlyPiecesAbsent));
 					}
@@ -42,19 +42,10 @@ public class MoveMap {
 		return new BitBoard(attackMap);
 	}
 	
+	// Squares the mover's king could stand on without being attacked, looking through the king itself.
 	public BitBoard getSafeKingSquares() {
-		MoveMap enemy = board.getOpponentMoveMap();
-		BitBoard danger = enemy.getAttackMap();
-		BitBoard allExceptKing = board.allPieces();
-		allExceptKing.clear(board.kingAt(board.getMoverColor()));
-		BitBoard enemiesNotAt = board.allPiecesFor(board.getOpponentColor()).negation();
-		for (ChessPiece slider: ChessPiece.slidingPieces) {
-			BitBoard cpAt = board.getAllOf(board.getOpponentColor(), slider);
-			for (BoardSquare start: cpAt) {
-				danger.addAll(moveMaker.retrieveMovesFor(start, slider, allExceptKing).intersection(enemiesNotAt));
-			}
-		}
-		return danger.negation().intersection(enemy.getDefenseMap().negation());
+		long allExceptKing = board.occupancy() & ~board.bitsOf(mover, ChessPiece.KING);
+		return new BitBoard(~moveMaker.attacksBy(board, mover.other(), allExceptKing));
 	}
 	
 	public BitBoard getDefenseMap() {
@@ -75,43 +66,98 @@ public class MoveMap {
 	}
 
 	public ArrayList<Move> makeMoveList() {
-		if (!isValidated) {validateVsCheck();}
-		ArrayList<Move> result = new ArrayList<Move>();
-		addPawnCaptures(result, pawnWest, mover == PieceColor.WHITE ? MoveDir.SE : MoveDir.NE);
-		addPawnCaptures(result, pawnEast, mover == PieceColor.WHITE ? MoveDir.SW : MoveDir.NW);
-		addPieceMoves(result);
-		addPawnAdvances(result);
+		int[] packed = new int[PackedMove.MAX_MOVES];
+		int count = makeMoves(packed);
+		ArrayList<Move> result = new ArrayList<Move>(count);
+		for (int i = 0; i < count; ++i) {
+			result.add(PackedMove.toMove(packed[i]));
+		}
 		return result;
 	}
 	
+	public int makeMoves(int[] buffer) {
+		int count = makeCaptures(buffer, 0);
+		return makeQuiets(buffer, count);
+	}
+	
+	// Captures, including en passant and capturing promotions, written from buffer[start].
+	public int makeCaptures(int[] buffer, int start) {
+		if (!isValidated) {validateVsCheck();}
+		int count = start;
+		count = addPawnCaptures(buffer, count, pawnWest, westTrackback());
+		count = addPawnCaptures(buffer, count, pawnEast, eastTrackback());
+		count = addPieceCaptures(buffer, count);
+		return count;
+	}
+	
+	// Everything else, including castling and non-capturing promotions, written from buffer[start].
+	public int makeQuiets(int[] buffer, int start) {
+		if (!isValidated) {validateVsCheck();}
+		int count = addPieceQuiets(buffer, start);
+		return addPawnAdvances(buffer, count);
+	}
+	
+	public boolean allows(Move m) {
+		if (!isValidated) {validateVsCheck();}
+		BoardSquare start = m.getStart(), stop = m.getStop();
+		if (m.getColor() != mover || board.at(start) != m.getPiece() || board.colorAt(start) != mover) {
+			return false;
+		}
+		if (m.getPiece() != ChessPiece.PAWN) {
+			return m.captures() == board.isOccupied(stop) && pieceMoves.containsKey(start) && pieceMoves.get(start).isSet(stop);
+		}
+		if (m.promotes() != stop.pawnEnd(mover)) {
+			return false;
+		}
+		if (start.fileNum() == stop.fileNum()) {
+			return pawnAdvances.isSet(stop) && !m.captures() && start == pawnAdvanceStart(stop);
+		} else if (stop.fileNum() < start.fileNum()) {
+			return pawnWest.isSet(stop) && m.captures() && start == stop.successor(westTrackback());
+		} else {
+			return pawnEast.isSet(stop) && m.captures() && start == stop.successor(eastTrackback());
+		}
+	}
+	
+	private MoveDir westTrackback() {
+		return mover == PieceColor.WHITE ? MoveDir.SE : MoveDir.NE;
+	}
+	
+	private MoveDir eastTrackback() {
+		return mover == PieceColor.WHITE ? MoveDir.SW : MoveDir.NW;
+	}
+	
+	private BoardSquare pawnAdvanceStart(BoardSquare stop) {
+		BoardSquare start = stop.pawnAdvanceFrom(mover.other());
+		if (stop.pawnJumpTarget(mover) && board.at(start) == ChessPiece.EMPTY) {
+			start = start.pawnAdvanceFrom(mover.other());
+		} 
+		return start;
+	}
+	
 	private void validateVsCheck() {
-		MoveMap enemy = board.getOpponentMoveMap();
 		BoardSquare king = board.kingAt(mover);
 		BitBoard safe = getSafeKingSquares();
+		long enPassantEast = pawnEast.getBits() & ~board.occupancy();
+		long enPassantWest = pawnWest.getBits() & ~board.occupancy();
 		
 		pieceMoves.get(king).retainAll(safe);
+		purgePinMoves(king);
 		
-		if (safe.isSet(king)) {
-			purgePinMoves(enemy);
+		long checkers = checkersOf(king);
+		if (checkers == 0) {
 			addCastleMoves(king, safe);
 		} else {
-			purgeAllExcept(findAttackBlocks(enemy, king));			
+			purgeAllExcept(findAttackBlocks(king, checkers));
 		}
+		checkEnPassant(king, pawnEast, enPassantEast, eastTrackback());
+		checkEnPassant(king, pawnWest, enPassantWest, westTrackback());
 
 		isValidated = true;
 	}
 	
-	BitBoard findAttackBlocks(MoveMap enemy, BoardSquare king) {
-		BitBoard attackBlocks = new BitBoard();
-		for (BoardSquare pieceAt: enemy.pieceMoves.keySet()) {
-			if (enemy.getCapturesFor(pieceAt).isSet(king)) {
-				attackBlocks.addAll(moveMaker.rayMaskBetween(pieceAt, king));
-			}
-		}
-		BitBoard kingBoard = board.getAllOf(mover, ChessPiece.KING);
-		attackBlocks.addAll(enemy.pawnEast.intersection(kingBoard).pawnCaptureWest(mover));
-		attackBlocks.addAll(enemy.pawnWest.intersection(kingBoard).pawnCaptureEast(mover));
-		return attackBlocks;
+	BitBoard findAttackBlocks(BoardSquare king, long checkers) {
+		if (Long.bitCount(checkers) > 1) {return new BitBoard();}
+		return new BitBoard(checkers | MoveGenerator.squaresBetween(king.ordinal(), Long.numberOfTrailingZeros(checkers)));
 	}
 	
 	private void purgeAllExcept(BitBoard allowed) {
@@ -125,21 +171,53 @@ public class MoveMap {
 		pawnWest.retainAll(allowed);
 	}
 	
-	private void purgePinMoves(MoveMap enemy) {
-		for (BoardSquare pieceAt: enemy.pieceMoves.keySet()) {
-			for (BoardSquare pin: enemy.getPiecesPinnedBy(pieceAt)) {
-				if (pieceMoves.containsKey(pin)) {
-					pieceMoves.get(pin).retainAll(moveMaker.rayMaskBetween(pieceAt, pin));
-				} else {
-					pawnAdvances.retainAll(moveMaker.cancelledPawnMoves(mover, pin));
-					pawnEast.retainAll(moveMaker.cancelledPawnEast(mover, pin, pieceAt));
-					pawnWest.retainAll(moveMaker.cancelledPawnWest(mover, pin, pieceAt));
-				}
+	// The board caches these for the side to move; a map for the other side works them out.
+	private long checkersOf(BoardSquare king) {
+		return mover == board.getMoverColor() ? board.checkers() : board.attackersTo(king.ordinal(), mover.other(), board.occupancy());
+	}
+	
+	private long pinnedTo(BoardSquare king) {
+		return mover == board.getMoverColor() ? board.pinned() : moveMaker.pinnedTo(board, king.ordinal(), mover);
+	}
+	
+	// A pinned piece may still move anywhere on the line through it and its king.
+	private void purgePinMoves(BoardSquare king) {
+		for (long pins = pinnedTo(king); pins != 0; pins &= pins - 1) {
+			BoardSquare pin = BoardSquare.fromOrdinal(Long.numberOfTrailingZeros(pins));
+			long line = MoveGenerator.lineThrough(king.ordinal(), pin.ordinal());
+			if (pieceMoves.containsKey(pin)) {
+				pieceMoves.get(pin).retainAll(new BitBoard(line));
+			} else {
+				// A blocked pawn has no advances of its own, and the square two
+				// ahead of it may be the single step of the pawn blocking it.
+				long advances = board.isOccupied(pin.pawnAdvanceFrom(mover)) ? ~0L : MoveGenerator.cancelledPawnMoves(mover, pin.ordinal());
+				pawnAdvances.retainAll(new BitBoard(advances | line));
+				pawnEast.retainAll(new BitBoard(MoveGenerator.cancelledPawnEast(mover, pin.ordinal()) | line));
+				pawnWest.retainAll(new BitBoard(MoveGenerator.cancelledPawnWest(mover, pin.ordinal()) | line));
 			}
-		}		
+		}
+	}
+	
+	// En passant takes two pawns off one rank at once, which neither the pin
+	// nor the check rules above account for, so it is judged by replaying it.
+	private void checkEnPassant(BoardSquare king, BitBoard captures, long target, MoveDir trackback) {
+		if (target != 0) {
+			BoardSquare stop = BoardSquare.fromOrdinal(Long.numberOfTrailingZeros(target));
+			long start = stop.successor(trackback).getMask();
+			long victim = stop.pawnAdvanceFrom(mover.other()).getMask();
+			long after = (board.occupancy() ^ start ^ victim) | target;
+			if ((board.attackersTo(king.ordinal(), mover.other(), after) & ~victim) == 0) {
+				captures.set(stop);
+			} else {
+				captures.clear(stop);
+			}
+		}
 	}
 	
+	// The board's potentialCastle tests are for the side to move, so an
+	// opponent's map leaves castling out.
 	private void addCastleMoves(BoardSquare king, BitBoard safe) {
+		if (mover != board.getMoverColor()) {return;}
 		if (board.potentialCastleKingside()) {tryAddingCastle(king, safe, MoveDir.E);}
 		if (board.potentialCastleQueenside()) {tryAddingCastle(king, safe, MoveDir.W);}
 	}
@@ -147,8 +225,8 @@ public class MoveMap {
 	private void tryAddingCastle(BoardSquare king, BitBoard safe, MoveDir dir) {
 		if (king.hasSuccessor(dir)) {
 			BoardSquare rookTarget = king.successor(dir);
-			if (pieceMoves.get(king).isSet(rookTarget)) {
-				BoardSquare rook = moveMaker.getCastleRook(mover, dir);
+			if (pieceMoves.get(king).isSet(rookTarget) && board.at(rookTarget) == ChessPiece.EMPTY) {
+				BoardSquare rook = MoveGenerator.getCastleRook(mover, dir);
 				if (pieceMoves.containsKey(rook) && pieceMoves.get(rook).isSet(rookTarget)) {
 					BoardSquare kingTarget = rookTarget.successor(dir);
 					if (safe.isSet(kingTarget) && board.at(kingTarget) == ChessPiece.EMPTY) {
@@ -188,11 +266,8 @@ public class MoveMap {
 	}
 	
 	private void addEnPassantCheck(Chessboard board, BitBoard opposingPiecesPresent) {
-		if (board.hasLastMove()) {
-			Move prev = board.getLastMove();
-			if (prev.getPiece() == ChessPiece.PAWN && prev.getStart().rankDiff(prev.getStop()) == 2) {
-				opposingPiecesPresent.set(prev.getStart().pawnAdvanceFrom(prev.getColor()));
-			}
+		if (mover == board.getMoverColor() && board.getEnPassantSquare() != null) {
+			opposingPiecesPresent.set(board.getEnPassantSquare());
 		}		
 	}
 	
@@ -200,76 +275,60 @@ public class MoveMap {
 		attackMap.addAll(motionMap);
 	}
 	
-	private void addPawnAdvances(ArrayList<Move> result) {
+	private int addPawnAdvances(int[] buffer, int count) {
 		for (BoardSquare stop: pawnAdvances) {
-			BoardSquare start = stop.pawnAdvanceFrom(mover.other());
-			if (stop.pawnJumpTarget(mover) && board.at(start) == ChessPiece.EMPTY) {
-				start = start.pawnAdvanceFrom(mover.other());
-			} 
-			
+			BoardSquare start = pawnAdvanceStart(stop);
+			int move = PackedMove.pack(mover, ChessPiece.PAWN, start, stop);
 			if (stop.pawnEnd(mover)) {
 				for (ChessPiece promo: promotions) {
-					result.add(new Move(mover, ChessPiece.PAWN, start, stop, promo));
+					buffer[count++] = PackedMove.withPromotion(move, promo);
 				}
 			} else {
-				result.add(new Move(mover, ChessPiece.PAWN, start, stop));
+				buffer[count++] = move;
 			}
 		}
+		return count;
 	}
 	
-	private void addPawnCaptures(ArrayList<Move> result, BitBoard src, MoveDir trackback) {
+	private int addPawnCaptures(int[] buffer, int count, BitBoard src, MoveDir trackback) {
 		for (BoardSquare stop: src) {
 			BoardSquare start = stop.successor(trackback);
+			int move = PackedMove.pack(mover, ChessPiece.PAWN, start, stop);
 			if (stop.pawnEnd(mover)) {
+				move = PackedMove.withCapture(move, board.at(stop));
 				for (ChessPiece promo: promotions) {
-					result.add(new Move(mover, ChessPiece.PAWN, start, stop, stop, promo));
+					buffer[count++] = PackedMove.withPromotion(move, promo);
 				}
 			} else if (board.at(stop) == ChessPiece.EMPTY) {
-				result.add(new Move(mover, ChessPiece.PAWN, start, stop, stop.pawnAdvanceFrom(mover.other())));
+				buffer[count++] = PackedMove.withEnPassant(move);
 			} else {
-				result.add(new Move(mover, ChessPiece.PAWN, start, stop, stop));
+				buffer[count++] = PackedMove.withCapture(move, board.at(stop));
 			}
 		}
+		return count;
 	}
 
-	private void addPieceMoves(ArrayList<Move> result) {
-		ArrayList<Move> nonCaptures = new ArrayList<Move>();
+	private int addPieceCaptures(int[] buffer, int count) {
 		for (BoardSquare start: pieceMoves.keySet()) {
+			ChessPiece piece = board.at(start);
 			for (BoardSquare stop: pieceMoves.get(start)) {
-				if (board.at(stop) == ChessPiece.EMPTY) {
-					nonCaptures.add(new Move(mover, board.at(start), start, stop));
-				} else {
-					result.add(new Move(mover, board.at(start), start, stop, stop));
+				if (board.at(stop) != ChessPiece.EMPTY) {
+					buffer[count++] = PackedMove.withCapture(PackedMove.pack(mover, piece, start, stop), board.at(stop));
 				}
 			}
-		}		
-		for (Move nc: nonCaptures) {result.add(nc);}
-	}
-	
-	private BitBoard getCapturesFor(BoardSquare pieceAt) {
-		return pieceMoves.get(pieceAt).intersection(board.allPiecesFor(mover.other()));
+		}
+		return count;
 	}
 	
-	private BitBoard getSecondCapturesFor(BoardSquare pieceAt) {
-		BitBoard firstCapturesFor = getCapturesFor(pieceAt);
-		BitBoard firstPurged = board.allPieces().intersection(firstCapturesFor.negation());
-		BitBoard secondMoves = moveMaker.retrieveMovesFor(pieceAt, board.at(pieceAt), firstPurged);
-		return secondMoves.intersection(board.allPiecesFor(mover.other()));
-	}
-
-	private BitBoard getPiecesPinnedBy(BoardSquare pieceAt) {
-		BitBoard pins = new BitBoard();
-		if (board.at(pieceAt).castsShadow()) {
-			BitBoard seconds = getSecondCapturesFor(pieceAt);
-			BoardSquare enemyKing = board.kingAt(mover.other());
-			if (seconds.isSet(enemyKing)) {
-				for (BoardSquare pinnable: getCapturesFor(pieceAt)) {
-					if (moveMaker.between(pieceAt, enemyKing, pinnable)) {
-						pins.set(pinnable);
-					}
+	private int addPieceQuiets(int[] buffer, int count) {
+		for (BoardSquare start: pieceMoves.keySet()) {
+			ChessPiece piece = board.at(start);
+			for (BoardSquare stop: pieceMoves.get(start)) {
+				if (board.at(stop) == ChessPiece.EMPTY) {
+					buffer[count++] = PackedMove.pack(mover, piece, start, stop);
 				}
-			} 
+			}
 		}
-		return pins;
+		return count;
 	}
 }
@@ -0,0 +1,137 @@
+package chess.core;
+
+// Hands out the legal moves of a board one at a time, in stages:
+// the hash move, then captures (most valuable victim, least valuable
+// attacker first), then killer moves, then the remaining quiet moves.
+// Each stage is only generated when the previous one runs dry, so a
+// search that cuts off early never pays for the quiet moves, and one that
+// cuts off on the hash move generates nothing at all.
+//
+// The board must be in the same position on every call to next().
+// A search keeps one picker per ply on that ply's move buffer and
+// reset()s it at each node, so picking allocates no buffers of its own.
+//
+// A pseudo-legal picker skips the king-safety checks, so the caller must
+// take back any move that leaves its king attacked (see LongMoveMap).
+
+public class MovePicker {
+	private final static int HASH = 0, MAKE_CAPTURES = 1, CAPTURES = 2, KILLERS = 3, QUIETS = 4, DONE = 5;
+	private final static int[] values = new int[]{1, 9, 5, 3, 3, 100};
+
+	private final int[] moves;
+	private final LongMoveMap map;
+
+	private Chessboard board;
+	private Move hashMove;
+	private Move[] killers;
+	private int[] tried = new int[3];
+	private int numTried;
+
+	private int stage;
+	private int next, end, killerIndex;
+
+	public MovePicker(Chessboard board, Move hashMove, Move... killers) {
+		this(board, false, hashMove, killers);
+	}
+	
+	public MovePicker(Chessboard board, boolean pseudoLegal, Move hashMove, Move... killers) {
+		this(new int[PackedMove.MAX_MOVES], new LongMoveMap(pseudoLegal));
+		reset(board, hashMove, killers);
+	}
+	
+	// Picks into moves, which must hold PackedMove.MAX_MOVES, using map, which may be shared.
+	public MovePicker(int[] moves, LongMoveMap map) {
+		this.moves = moves;
+		this.map = map;
+		this.stage = DONE;
+	}
+	
+	// Starts over on board, which may be a different position from the last one.
+	public void reset(Chessboard board, Move hashMove, Move... killers) {
+		this.board = board;
+		this.hashMove = hashMove;
+		this.killers = killers;
+		if (tried.length < killers.length + 1) {tried = new int[killers.length + 1];}
+		numTried = 0;
+		next = end = killerIndex = 0;
+		stage = HASH;
+	}
+
+	// Returns null once every legal move has been handed out.
+	public Move next() {
+		while (stage != DONE) {
+			if (stage == HASH) {
+				stage = MAKE_CAPTURES;
+				if (hashMove != null && fits(hashMove)) {
+					return triedMove(hashMove);
+				}
+			} else if (stage == MAKE_CAPTURES) {
+				end = map.makeCaptures(board, moves, 0);
+				orderCaptures();
+				stage = CAPTURES;
+			} else if (stage == CAPTURES) {
+				Move m = nextUntried();
+				if (m != null) {return m;}
+				stage = KILLERS;
+			} else if (stage == KILLERS) {
+				while (killerIndex < killers.length) {
+					Move killer = killers[killerIndex++];
+					if (killer != null && !killer.captures() && fits(killer) && !alreadyTried(PackedMove.fromMove(killer, board))) {
+						return triedMove(killer);
+					}
+				}
+				next = 0;
+				end = map.makeQuiets(board, moves, 0);
+				stage = QUIETS;
+			} else {
+				Move m = nextUntried();
+				if (m != null) {return m;}
+				stage = DONE;
+			}
+		}
+		return null;
+	}
+
+	private boolean fits(Move m) {
+		return map.isPseudoLegal() ? board.isPseudoLegal(m) : board.isLegal(m);
+	}
+
+	private Move nextUntried() {
+		while (next < end) {
+			int move = moves[next++];
+			if (!alreadyTried(move)) {
+				return PackedMove.toMove(move);
+			}
+		}
+		return null;
+	}
+
+	private Move triedMove(Move m) {
+		tried[numTried++] = PackedMove.fromMove(m, board);
+		return m;
+	}
+
+	private boolean alreadyTried(int move) {
+		for (int i = 0; i < numTried; ++i) {
+			if (tried[i] == move) {return true;}
+		}
+		return false;
+	}
+
+	private void orderCaptures() {
+		for (int i = 1; i < end; ++i) {
+			int move = moves[i];
+			int score = captureScore(move);
+			int j = i - 1;
+			while (j >= 0 && captureScore(moves[j]) < score) {
+				moves[j + 1] = moves[j];
+				j -= 1;
+			}
+			moves[j + 1] = move;
+		}
+	}
+
+	private static int captureScore(int move) {
+		return 16 * values[PackedMove.captured(move).ordinal()] - values[PackedMove.piece(move).ordinal()];
+	}
+}
@@ -52,4 +52,69 @@ public class MoveTest {
 		assertTrue(s.contains(m3));
 		assertEquals(2, s.size());
 	}
+	
+	@Test
+	public void packedTest() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "d5", "exd5", "c5", "dxc6", "Nf6", "cxb7", "e6");
+		int[] packed = new int[PackedMove.MAX_MOVES];
+		int count = board.getLegalMoves(packed);
+		assertEquals(board.getLegalMoves().size(), count);
+		int promotions = 0;
+		for (int i = 0; i < count; ++i) {
+			Move m = PackedMove.toMove(packed[i]);
+			assertEquals(m.toString(), board.getLegalMoves().get(i).toString());
+			assertEquals(packed[i], PackedMove.fromMove(m, board));
+			if (PackedMove.promotes(packed[i])) {
+				promotions += 1;
+				assertEquals(PackedMove.captures(packed[i]), m.captures());
+			}
+		}
+		assertEquals(8, promotions);
+		
+		int ep = PackedMove.fromMove(new Move("WHITE_PAWN_d5_c6xc5"), board);
+		assertTrue(PackedMove.isEnPassant(ep));
+		assertEquals(ChessPiece.PAWN, PackedMove.captured(ep));
+		assertEquals(BoardSquare.C5, PackedMove.captureSquare(ep));
+		
+		int castle = PackedMove.pack(PieceColor.BLACK, ChessPiece.KING, BoardSquare.E8, BoardSquare.C8);
+		assertTrue(PackedMove.isCastle(castle));
+		assertEquals(PieceColor.BLACK, PackedMove.color(castle));
+		assertFalse(PackedMove.captures(castle));
+	}
+	
+	@Test
+	public void pickerTest() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "d5", "Nc3", "Nf6", "Bb5+", "c6");
+		Move hash = Algebraic.decode("Bxc6+", board);
+		Move killer = Algebraic.decode("Nf3", board);
+		Move capture = Algebraic.decode("exd5", board);
+		MovePicker picker = new MovePicker(board, hash, killer, capture, hash);
+		Set<Move> picked = new HashSet<>();
+		assertEquals(hash, picker.next());
+		picked.add(hash);
+		Move m = picker.next();
+		assertTrue(m.captures());
+		for (; m != null; m = picker.next()) {
+			assertTrue(m.toString(), picked.add(m));
+		}
+		assertEquals(new HashSet<>(board.getLegalMoves()), picked);
+		assertNull(picker.next());
+	}
+	
+	@Test
+	public void pickerReset() throws IllegalMoveException {
+		Chessboard first = Algebraic.from("e4", "d5");
+		Chessboard second = Algebraic.from("e4", "d5", "exd5", "Qxd5", "Nc3");
+		MovePicker picker = new MovePicker(new int[PackedMove.MAX_MOVES], new LongMoveMap());
+		assertNull(picker.next());
+		picker.reset(first, null);
+		assertTrue(picker.next().captures());
+		Move hash = Algebraic.decode("Qe5+", second);
+		picker.reset(second, hash, hash);
+		Set<Move> picked = new HashSet<>();
+		for (Move m = picker.next(); m != null; m = picker.next()) {
+			assertTrue(m.toString(), picked.add(m));
+		}
+		assertEquals(new HashSet<>(second.getLegalMoves()), picked);
+	}
 }
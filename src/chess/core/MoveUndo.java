@@ -0,0 +1,38 @@
+package chess.core;
+
+import java.util.List;
+
+// Everything Chessboard.unmakeMove() needs that cannot be recovered
+// from the move itself, and what the board had already worked out about
+// its position, so taking a move back restores that too. Instances are
+// reused from ply to ply.
+
+class MoveUndo {
+	Move move;
+	ChessPiece captured;
+	int castling, enPassant, halfmoveClock;
+	Move lastMove;
+	long key, pawnKey, materialKey;
+	
+	long checkers, pinned;
+	boolean pinsFound;
+	List<Move> legalMoves;
+	int status;
+	
+	void copy(MoveUndo that) {
+		move = that.move;
+		captured = that.captured;
+		castling = that.castling;
+		enPassant = that.enPassant;
+		halfmoveClock = that.halfmoveClock;
+		lastMove = that.lastMove;
+		key = that.key;
+		pawnKey = that.pawnKey;
+		materialKey = that.materialKey;
+		checkers = that.checkers;
+		pinned = that.pinned;
+		pinsFound = that.pinsFound;
+		legalMoves = that.legalMoves;
+		status = that.status;
+	}
+}
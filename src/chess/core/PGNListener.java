@@ -0,0 +1,21 @@
+package chess.core;
+
+import java.util.Map;
+
+// Receives the games PGNReader reads, one position at a time.
+
+public interface PGNListener {
+	// Called once per game, after its tags, with the position it starts from.
+	public void startGame(Map<String,String> tags, Chessboard start);
+
+	// Called after each move; game.getBoard() is the position it led to.
+	// The history is reused by the reader, so copy anything worth keeping.
+	public void move(GameHistory game, Move m);
+
+	// result is the termination marker: 1-0, 0-1, 1/2-1/2 or *.
+	public void endGame(String result);
+
+	// Called instead of endGame() when a move or set-up position is not
+	// legal; the rest of that game is skipped.
+	public void badGame(String reason);
+}
@@ -0,0 +1,233 @@
+package chess.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reference:
+//
+// S. J. Edwards, "Portable Game Notation Specification and Implementation
+// Guide", 1994.
+//
+// Reads games from a channel through one fixed-size buffer, so memory use
+// does not grow with the archive, and replays each game on a single
+// GameHistory as its moves are read. Algebraic.decode() only looks at the
+// pieces that reach each move's target, so no move lists are generated.
+//
+// Tag pairs go to the listener; comments ({...}, ; to end of line, and %
+// escape lines), recursive variations, NAGs and move numbers are skipped.
+// A FEN tag sets up the starting position.
+//
+// Usage: java chess.core.PGNReader file.pgn
+
+public class PGNReader {
+	private final static int BUFFER_BYTES = 1 << 16;
+
+	private ReadableByteChannel in;
+	private ByteBuffer buffer;
+	private PGNListener listener;
+	private int pushedBack = -1, last = '\n';
+	private StringBuilder token = new StringBuilder();
+	private byte[] text = new byte[256];
+
+	private Map<String,String> tags = new LinkedHashMap<String,String>();
+	private GameHistory game;
+	private boolean started, skipping;
+	private int games;
+
+	public PGNReader(ReadableByteChannel in, PGNListener listener) {
+		this.in = in;
+		this.listener = listener;
+		buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		buffer.flip();
+	}
+
+	public static int read(Path file, PGNListener listener) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new PGNReader(channel, listener).readAll();
+		}
+	}
+
+	// Reads to the end of the channel; returns how many games it held.
+	public int readAll() throws IOException {
+		for (int c = next(); c >= 0; c = next()) {
+			if (c == '[') {
+				if (game != null || skipping) {finishGame("*");}
+				readTag();
+			} else if (c == '{') {
+				skipPast('}');
+			} else if (c == ';' || (c == '%' && last == '\n')) {
+				skipPast('\n');
+				c = '\n';
+			} else if (c == '(') {
+				skipVariation();
+			} else if (c == '$') {
+				// A numeric annotation glyph, such as $14
+				readToken(c);
+			} else if (isTokenChar(c)) {
+				playToken(readToken(c));
+			}
+			last = c;
+		}
+		if (game != null || skipping || !tags.isEmpty()) {finishGame("*");}
+		return games;
+	}
+
+	private void playToken(String t) {
+		if (t.equals("1-0") || t.equals("0-1") || t.equals("1/2-1/2") || t.equals("*")) {
+			finishGame(t);
+		} else if (!skipping && !isMoveNumber(t) && !isAnnotation(t)) {
+			if (game == null) {startGame();}
+			if (game == null) {return;}
+			try {
+				Move m = Algebraic.decode(t, game.getBoard());
+				game.makeMove(m);
+				listener.move(game, m);
+			} catch (IllegalMoveException e) {
+				skip(e.getMessage());
+			}
+		}
+	}
+
+	private void startGame() {
+		started = true;
+		try {
+			Chessboard start = tags.containsKey("FEN") ? FEN.decode(tags.get("FEN")) : new Chessboard();
+			game = new GameHistory(start);
+			listener.startGame(tags, start);
+		} catch (IllegalArgumentException e) {
+			skip(e.getMessage());
+		}
+	}
+
+	private void skip(String reason) {
+		skipping = true;
+		game = null;
+		listener.badGame(reason);
+	}
+
+	private void finishGame(String result) {
+		if (!skipping) {
+			if (!started) {startGame();}
+			if (!skipping) {listener.endGame(result);}
+		}
+		games += 1;
+		tags = new LinkedHashMap<String,String>();
+		game = null;
+		started = skipping = false;
+	}
+
+	private void readTag() throws IOException {
+		int c = next();
+		while (c >= 0 && Character.isWhitespace(c)) {c = next();}
+		token.setLength(0);
+		while (c >= 0 && c != '"' && c != ']' && !Character.isWhitespace(c)) {
+			token.append((char)c);
+			c = next();
+		}
+		String name = token.toString();
+		while (c >= 0 && c != '"' && c != ']') {c = next();}
+		int length = 0;
+		if (c == '"') {
+			for (c = next(); c >= 0 && c != '"'; c = next()) {
+				if (c == '\\') {c = next();}
+				if (length == text.length) {text = Arrays.copyOf(text, 2 * length);}
+				text[length++] = (byte)c;
+			}
+			skipPast(']');
+		}
+		tags.put(name, new String(text, 0, length, StandardCharsets.UTF_8));
+	}
+
+	private String readToken(int first) throws IOException {
+		token.setLength(0);
+		int c = first;
+		do {
+			token.append((char)c);
+			c = next();
+		} while (isTokenChar(c));
+		pushedBack = c;
+		return token.toString();
+	}
+
+	private void skipVariation() throws IOException {
+		int depth = 1;
+		while (depth > 0) {
+			int c = next();
+			if (c < 0) {
+				return;
+			} else if (c == '(') {
+				depth += 1;
+			} else if (c == ')') {
+				depth -= 1;
+			} else if (c == '{') {
+				skipPast('}');
+			} else if (c == ';') {
+				skipPast('\n');
+			}
+		}
+	}
+
+	private void skipPast(int end) throws IOException {
+		int c = next();
+		while (c >= 0 && c != end) {c = next();}
+	}
+
+	private int next() throws IOException {
+		if (pushedBack >= 0) {
+			int c = pushedBack;
+			pushedBack = -1;
+			return c;
+		}
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int n = in.read(buffer);
+			while (n == 0) {n = in.read(buffer);}
+			buffer.flip();
+			if (n < 0) {return -1;}
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	private static boolean isTokenChar(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+				|| c == '-' || c == '+' || c == '#' || c == '=' || c == '/' || c == '!' || c == '?' || c == '*' || c == ':';
+	}
+
+	private static boolean isMoveNumber(String t) {
+		for (int i = 0; i < t.length(); ++i) {
+			if (!Character.isDigit(t.charAt(i))) {return false;}
+		}
+		return true;
+	}
+
+	// Stand-alone annotation glyphs such as "!?"
+	private static boolean isAnnotation(String t) {
+		for (int i = 0; i < t.length(); ++i) {
+			if (t.charAt(i) != '!' && t.charAt(i) != '?') {return false;}
+		}
+		return true;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final int[] plies = new int[1];
+		long start = System.nanoTime();
+		int games = read(Paths.get(args[0]), new PGNListener() {
+			public void startGame(Map<String,String> tags, Chessboard start) {}
+			public void move(GameHistory game, Move m) {plies[0] += 1;}
+			public void endGame(String result) {}
+			public void badGame(String reason) {System.err.println(reason);}
+		});
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d games, %d plies in %.2f s: %.0f games/sec, %.0f plies/sec%n",
+				games, plies[0], seconds, games / seconds, plies[0] / seconds);
+	}
+}
@@ -0,0 +1,117 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.*;
+
+public class PGNReaderTest {
+	String pgn = 
+		"[Event \"Casual \\\"blitz\\\"\"]\n" +
+		"[White \"M\u00fcller\"]\n" +
+		"[Result \"1-0\"]\n" +
+		"\n" +
+		"1. e4 {best by test} e5 2. Nf3 (2. f4 exf4 (2... d5) 3. Nf3) Nc6 $1 3. Bc4 !? Nd4?\n" +
+		"; a line comment ) with a stray paren\n" +
+		"%escaped line 1-0\n" +
+		"4. Nxe5 Qg5 5. Nxf7 Qxg2 6. Rf1 Qxe4+ 7. Be2 Nf3# 0-1\n" +
+		"\n" +
+		"[Event \"Set up\"]\n" +
+		"[FEN \"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1\"]\n" +
+		"\n" +
+		"1. 0-0-0 Kf7 2. Rh7+ *\n" +
+		"\n" +
+		"[Event \"Broken\"]\n" +
+		"1. e4 e5 2. Ke3 Nc6 1/2-1/2\n" +
+		"[Event \"No result\"]\n" +
+		"1. d4 d5\n";
+
+	@Test
+	public void readsGames() throws IOException {
+		Recorder recorder = read(pgn);
+		assertEquals(4, recorder.games);
+		assertEquals("[Casual \"blitz\", Set up, Broken, No result]", recorder.events.toString());
+		assertEquals("M\u00fcller", recorder.tags.get(0).get("White"));
+		assertEquals("[14, 3, 2, 2]", recorder.plies.toString());
+		assertEquals("[0-1, *, bad, *]", recorder.results.toString());
+		assertTrue(recorder.last.get(0).isCheckmate());
+		assertEquals("8/5k1R/8/8/8/8/8/2KR4 b - - 3 2", FEN.encode(recorder.last.get(1)));
+	}
+
+	@Test
+	public void pawnToOwnBackRankSkipsOnlyThatGame() throws IOException {
+		Recorder recorder = read("[Event \"Bad\"]\n[FEN \"4k3/8/8/8/8/8/8/K7 w - - 0 1\"]\n\n1. e1 *\n\n"
+				+ "[Event \"Good\"]\n\n1. e4 e5 *\n");
+		assertEquals(2, recorder.games);
+		assertEquals("[bad, *]", recorder.results.toString());
+		assertEquals(2, recorder.plies.get(1).intValue());
+	}
+
+	@Test
+	public void replaysEncodedGames() throws IOException {
+		Random random = new Random(11);
+		StringBuilder text = new StringBuilder();
+		List<Long> keys = new ArrayList<Long>();
+		for (int game = 0; game < 20; ++game) {
+			text.append("[Event \"").append(game).append("\"]\n\n");
+			Chessboard board = new Chessboard();
+			for (int ply = 0; ply < 100 && board.gameInProgress(); ++ply) {
+				List<Move> moves = board.getLegalMoves();
+				Move m = moves.get(random.nextInt(moves.size()));
+				if (ply % 2 == 0) {text.append(ply / 2 + 1).append(". ");}
+				text.append(Algebraic.encode(m, board, moves)).append(' ');
+				board = board.successor(m);
+			}
+			keys.add(board.getZobristKey());
+			text.append("*\n\n");
+		}
+		Recorder recorder = read(text.toString());
+		assertEquals(20, recorder.games);
+		for (int game = 0; game < 20; ++game) {
+			assertEquals(keys.get(game).longValue(), recorder.last.get(game).getZobristKey());
+		}
+	}
+
+	Recorder read(String text) throws IOException {
+		Recorder recorder = new Recorder();
+		ByteArrayInputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+		recorder.games = new PGNReader(Channels.newChannel(in), recorder).readAll();
+		return recorder;
+	}
+
+	static class Recorder implements PGNListener {
+		int games;
+		List<Map<String,String>> tags = new ArrayList<Map<String,String>>();
+		List<String> events = new ArrayList<String>(), results = new ArrayList<String>();
+		List<Integer> plies = new ArrayList<Integer>();
+		List<Chessboard> last = new ArrayList<Chessboard>();
+
+		public void startGame(Map<String,String> tags, Chessboard start) {
+			this.tags.add(tags);
+			events.add(tags.get("Event"));
+			plies.add(0);
+			last.add(start);
+		}
+
+		public void move(GameHistory game, Move m) {
+			plies.set(plies.size() - 1, game.getPly());
+			last.set(last.size() - 1, new Chessboard(game.getBoard()));
+		}
+
+		public void endGame(String result) {
+			results.add(result);
+		}
+
+		public void badGame(String reason) {
+			results.add("bad");
+		}
+	}
+}
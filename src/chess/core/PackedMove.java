@@ -0,0 +1,102 @@
+package chess.core;
+
+// A move packed into one int, so move generation can fill an int[] without
+// allocating. Move objects are only built when someone asks for one.
+//
+// Bit layout:
+//  0- 5 start square ordinal
+//  6-11 stop square ordinal
+// 12-14 moving piece ordinal
+// 15-17 captured piece ordinal + 1 (0 if none)
+// 18-20 promotion piece ordinal + 1 (0 if none)
+//    21 en passant capture
+//    22 castle
+//    23 black to move
+
+public class PackedMove {
+	public final static int MAX_MOVES = 256;
+	public final static int NONE = 0;
+
+	private final static int STOP_SHIFT = 6, PIECE_SHIFT = 12, CAPTURE_SHIFT = 15, PROMOTE_SHIFT = 18;
+	private final static int SQUARE_MASK = 0x3F, PIECE_MASK = 0x7;
+	private final static int EN_PASSANT = 1 << 21, CASTLE = 1 << 22, BLACK = 1 << 23;
+
+	private PackedMove() {}
+
+	public static int pack(PieceColor color, ChessPiece piece, BoardSquare start, BoardSquare stop) {
+		int move = start.ordinal() | (stop.ordinal() << STOP_SHIFT) | (piece.ordinal() << PIECE_SHIFT);
+		if (color == PieceColor.BLACK) {move |= BLACK;}
+		if (piece == ChessPiece.KING && start.fileDiff(stop) == 2) {move |= CASTLE;}
+		return move;
+	}
+
+	public static int withCapture(int move, ChessPiece captured) {
+		return move | ((captured.ordinal() + 1) << CAPTURE_SHIFT);
+	}
+
+	public static int withEnPassant(int move) {
+		return withCapture(move, ChessPiece.PAWN) | EN_PASSANT;
+	}
+
+	public static int withPromotion(int move, ChessPiece promotion) {
+		return move | ((promotion.ordinal() + 1) << PROMOTE_SHIFT);
+	}
+
+	public static int startIndex(int move) {return move & SQUARE_MASK;}
+	public static int stopIndex(int move) {return (move >>> STOP_SHIFT) & SQUARE_MASK;}
+
+	public static BoardSquare start(int move) {return BoardSquare.fromOrdinal(startIndex(move));}
+	public static BoardSquare stop(int move) {return BoardSquare.fromOrdinal(stopIndex(move));}
+	public static ChessPiece piece(int move) {return ChessPiece.onBoard[(move >>> PIECE_SHIFT) & PIECE_MASK];}
+	public static PieceColor color(int move) {return (move & BLACK) != 0 ? PieceColor.BLACK : PieceColor.WHITE;}
+
+	public static boolean captures(int move) {return ((move >>> CAPTURE_SHIFT) & PIECE_MASK) != 0;}
+	public static boolean promotes(int move) {return ((move >>> PROMOTE_SHIFT) & PIECE_MASK) != 0;}
+	public static boolean isEnPassant(int move) {return (move & EN_PASSANT) != 0;}
+	public static boolean isCastle(int move) {return (move & CASTLE) != 0;}
+
+	public static ChessPiece captured(int move) {
+		int code = (move >>> CAPTURE_SHIFT) & PIECE_MASK;
+		return code == 0 ? ChessPiece.EMPTY : ChessPiece.onBoard[code - 1];
+	}
+
+	public static ChessPiece promotesTo(int move) {
+		int code = (move >>> PROMOTE_SHIFT) & PIECE_MASK;
+		return code == 0 ? ChessPiece.EMPTY : ChessPiece.onBoard[code - 1];
+	}
+
+	public static BoardSquare captureSquare(int move) {
+		if (isEnPassant(move)) {
+			return stop(move).pawnAdvanceFrom(color(move).other());
+		}
+		return captures(move) ? stop(move) : null;
+	}
+
+	public static Move toMove(int move) {
+		PieceColor color = color(move);
+		ChessPiece piece = piece(move);
+		BoardSquare start = start(move), stop = stop(move);
+		if (captures(move)) {
+			if (promotes(move)) {
+				return new Move(color, piece, start, stop, captureSquare(move), promotesTo(move));
+			} else {
+				return new Move(color, piece, start, stop, captureSquare(move));
+			}
+		} else if (promotes(move)) {
+			return new Move(color, piece, start, stop, promotesTo(move));
+		} else {
+			return new Move(color, piece, start, stop);
+		}
+	}
+
+	public static int fromMove(Move m, Chessboard board) {
+		int move = pack(m.getColor(), m.getPiece(), m.getStart(), m.getStop());
+		if (m.captures()) {
+			move = m.getCapture() == m.getStop() ? withCapture(move, board.at(m.getStop())) : withEnPassant(move);
+		}
+		if (m.promotes()) {
+			move = withPromotion(move, m.promotesTo());
+		}
+		return move;
+	}
+}
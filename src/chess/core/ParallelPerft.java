@@ -0,0 +1,91 @@
+package chess.core;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Perft on a ForkJoinPool. The first few plies are split into one task per
+// move, which idle workers steal; below that, each task counts its subtree
+// with a sequential make/unmake Perft. All tasks share one PerftTable, so a
+// position reached by transposition, in any thread, is only counted once.
+//
+// Usage: java chess.core.ParallelPerft [depth] [maxThreads]
+// prints the time and speed-up over one thread for 1..maxThreads workers.
+
+public class ParallelPerft {
+	private final static int SPLIT_PLIES = 2, TABLE_BITS = 20;
+	
+	private ForkJoinPool pool;
+	private PerftTable table;
+	
+	public ParallelPerft(int threads) {
+		this(threads, true);
+	}
+	
+	public ParallelPerft(int threads, boolean useTable) {
+		pool = new ForkJoinPool(threads);
+		table = useTable ? new PerftTable(TABLE_BITS) : null;
+	}
+	
+	public long perft(Chessboard start, int depth) {
+		return pool.invoke(new Subtree(start, depth, SPLIT_PLIES));
+	}
+	
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	@SuppressWarnings("serial")
+	private class Subtree extends RecursiveTask<Long> {
+		private Chessboard board;
+		private int depth, splits;
+		
+		Subtree(Chessboard board, int depth, int splits) {
+			this.board = board;
+			this.depth = depth;
+			this.splits = splits;
+		}
+		
+		@Override
+		protected Long compute() {
+			if (splits == 0 || depth <= 2) {
+				return new Perft(board, false, table).perft(depth);
+			}
+			if (table != null) {
+				long stored = table.get(board.getZobristKey(), depth);
+				if (stored >= 0) {return stored;}
+			}
+			ArrayList<Subtree> children = new ArrayList<Subtree>();
+			for (Move m: board.getLegalMoves()) {
+				Subtree child = new Subtree(board.successor(m), depth - 1, splits - 1);
+				child.fork();
+				children.add(child);
+			}
+			long nodes = 0;
+			for (Subtree child: children) {
+				nodes += child.join();
+			}
+			if (table != null) {table.put(board.getZobristKey(), depth, nodes);}
+			return nodes;
+		}
+	}
+	
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		Chessboard start = new Chessboard();
+		new ParallelPerft(1).perft(start, Math.min(depth, 4));
+		
+		System.out.printf("%7s %12s %10s %8s%n", "threads", "nodes", "ms", "speed-up");
+		double oneThread = 0;
+		for (int threads = 1; threads <= maxThreads; ++threads) {
+			ParallelPerft perft = new ParallelPerft(threads);
+			long begin = System.nanoTime();
+			long nodes = perft.perft(start, depth);
+			double ms = (System.nanoTime() - begin) / 1e6;
+			perft.shutdown();
+			if (threads == 1) {oneThread = ms;}
+			System.out.printf("%7d %12d %10.0f %8.2f%n", threads, nodes, ms, oneThread / ms);
+		}
+	}
+}
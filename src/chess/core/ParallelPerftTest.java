@@ -0,0 +1,24 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class ParallelPerftTest {
+	@Test
+	public void startPosition() {
+		ParallelPerft perft = new ParallelPerft(4);
+		assertEquals(8902, perft.perft(new Chessboard(), 3));
+		assertEquals(197281, perft.perft(new Chessboard(), 4));
+		assertEquals(4865609, perft.perft(new Chessboard(), 5));
+		perft.shutdown();
+	}
+	
+	@Test
+	public void withoutTable() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "d5");
+		ParallelPerft perft = new ParallelPerft(3, false);
+		assertEquals(new Perft(board).perft(4), perft.perft(board, 4));
+		perft.shutdown();
+	}
+}
@@ -0,0 +1,127 @@
+package chess.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reference: https://www.chessprogramming.org/Perft
+//
+// Counts the leaf nodes of the legal move tree to a fixed depth. The counts
+// for standard positions are published, so any mismatch is a move
+// generation bug; divide() splits the count by root move to find it.
+// At depth 1 the moves are counted rather than played ("bulk counting").
+//
+// Moves come from MoveMap (through Chessboard.getLegalMoves), from
+// LongMoveMap, or from LongMoveMap's pseudo-legal mode, so each generator
+// can be checked and timed. Pseudo-legal moves that might leave the king
+// attacked are played and tested, so only the rest are bulk counted.
+// Given a PerftTable, subtrees reached by transposition are only counted
+// once.
+
+public class Perft {
+	public enum Generator {MOVE_MAP, LONG_MOVE_MAP, PSEUDO_LEGAL}
+	
+	private GameHistory game;
+	private Generator generator;
+	private LongMoveMap moveMap;
+	private int[][] buffers;
+	private PerftTable table;
+	
+	public Perft(Chessboard start, boolean viaMoveMap) {
+		this(start, viaMoveMap ? Generator.MOVE_MAP : Generator.LONG_MOVE_MAP, null);
+	}
+	
+	public Perft(Chessboard start, Generator generator) {
+		this(start, generator, null);
+	}
+	
+	Perft(Chessboard start, boolean viaMoveMap, PerftTable table) {
+		this(start, viaMoveMap ? Generator.MOVE_MAP : Generator.LONG_MOVE_MAP, table);
+	}
+	
+	Perft(Chessboard start, Generator generator, PerftTable table) {
+		this.game = new GameHistory(start);
+		this.generator = generator;
+		this.moveMap = new LongMoveMap(generator == Generator.PSEUDO_LEGAL);
+		this.buffers = new int[0][];
+		this.table = table;
+	}
+	
+	public Perft(Chessboard start) {
+		this(start, false);
+	}
+	
+	public long perft(int depth) {
+		ensureBuffers(depth);
+		return count(depth);
+	}
+	
+	// Leaf counts below each root move, keyed by the move in coordinate form (e.g. e7e8q).
+	public Map<String,Long> divide(int depth) {
+		ensureBuffers(depth);
+		Map<String,Long> result = new LinkedHashMap<String,Long>();
+		int[] moves = buffers[depth];
+		int count = generate(moves);
+		for (int i = 0; i < count; ++i) {
+			Move m = PackedMove.toMove(moves[i]);
+			boolean test = needsTest(m);
+			game.makeMove(m);
+			if (!test || !game.getBoard().opponentInCheck()) {
+				result.put(coordinates(moves[i]), depth > 1 ? count(depth - 1) : 1L);
+			}
+			game.unmakeMove();
+		}
+		return result;
+	}
+	
+	static String coordinates(int move) {
+		String name = PackedMove.start(move).toString() + PackedMove.stop(move).toString();
+		if (PackedMove.promotes(move)) {
+			name += Character.toLowerCase(PackedMove.promotesTo(move).symbol());
+		}
+		return name;
+	}
+	
+	private long count(int depth) {
+		if (depth == 0) {return 1;}
+		long key = game.getBoard().getZobristKey();
+		if (table != null && depth > 1) {
+			long stored = table.get(key, depth);
+			if (stored >= 0) {return stored;}
+		}
+		
+		int[] moves = buffers[depth];
+		int count = generate(moves);
+		if (depth == 1 && !moveMap.isPseudoLegal()) {return count;}
+		
+		long nodes = 0;
+		for (int i = 0; i < count; ++i) {
+			Move m = PackedMove.toMove(moves[i]);
+			boolean test = needsTest(m);
+			if (depth == 1 && !test) {
+				nodes += 1;
+			} else {
+				game.makeMove(m);
+				if (!test || !game.getBoard().opponentInCheck()) {nodes += count(depth - 1);}
+				game.unmakeMove();
+			}
+		}
+		if (table != null) {table.put(key, depth, nodes);}
+		return nodes;
+	}
+	
+	private int generate(int[] buffer) {
+		Chessboard board = game.getBoard();
+		return generator == Generator.MOVE_MAP ? board.getLegalMoves(buffer) : moveMap.makeMoves(board, buffer);
+	}
+	
+	// Whether m has to be played to find out if it leaves the king attacked.
+	private boolean needsTest(Move m) {
+		return moveMap.isPseudoLegal() && game.getBoard().mayExposeKing(m);
+	}
+	
+	private void ensureBuffers(int depth) {
+		if (buffers.length <= depth) {
+			buffers = new int[depth + 1][PackedMove.MAX_MOVES];
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package chess.core;
+
+// Runs perft on positions with published node counts, through each of
+// Perft's generators, and reports whether each count matches and how many
+// nodes per second each generator managed. The positions and counts are from
+// https://www.chessprogramming.org/Perft_Results
+//
+// Usage: java chess.core.PerftSuite [maxDepth]
+
+public class PerftSuite {
+	// Name, FEN, then expected counts from depth 1.
+	final static Object[][] positions = new Object[][]{
+		{"start", FEN.START, new long[]{20, 400, 8902, 197281, 4865609, 119060324}},
+		{"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 
+			new long[]{48, 2039, 97862, 4085603, 193690690}},
+		{"position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 
+			new long[]{14, 191, 2812, 43238, 674624, 11030083}},
+		{"position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 
+			new long[]{6, 264, 9467, 422333, 15833292}},
+		{"position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 
+			new long[]{44, 1486, 62379, 2103487, 89941194}},
+		{"position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 
+			new long[]{46, 2079, 89890, 3894594, 164075551}},
+	};
+	
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		boolean allPassed = true;
+		System.out.printf("%-10s %5s %-13s %12s %10s %14s %s%n", "position", "depth", "generator", "nodes", "ms", "nodes/sec", "");
+		for (Object[] position: positions) {
+			Chessboard board = FEN.decode((String)position[1]);
+			long[] expected = (long[])position[2];
+			for (int depth = 1; depth <= Math.min(maxDepth, expected.length); ++depth) {
+				for (Perft.Generator generator: Perft.Generator.values()) {
+					Perft perft = new Perft(board, generator);
+					long start = System.nanoTime();
+					long nodes = perft.perft(depth);
+					double seconds = (System.nanoTime() - start) / 1e9;
+					boolean passed = nodes == expected[depth - 1];
+					allPassed &= passed;
+					System.out.printf("%-10s %5d %-13s %12d %10.0f %14.0f %s%n", position[0], depth, 
+							generator, nodes, seconds * 1000, nodes / seconds, 
+							passed ? "ok" : "FAILED, expected " + expected[depth - 1]);
+				}
+			}
+		}
+		if (!allPassed) {System.exit(1);}
+	}
+}
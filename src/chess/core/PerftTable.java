@@ -0,0 +1,47 @@
+package chess.core;
+
+// Reference:
+//
+// R. Hyatt and T. Mann, "A lock-less transposition table implementation
+// for parallel search chess engines", ICGA Journal 25(1), 2002.
+//
+// Perft counts shared between threads, keyed by Zobrist key and depth.
+// Each slot stores the key XORed with its data; a slot torn by two threads
+// writing at once no longer decodes to its key and reads as a miss, so
+// no locking is needed. Collisions simply overwrite.
+
+class PerftTable {
+	private final static int DEPTH_BITS = 8;
+	private final static long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+	
+	private long[] checks, data;
+	private int mask;
+	
+	// Holds 2^bits entries.
+	PerftTable(int bits) {
+		checks = new long[1 << bits];
+		data = new long[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+	
+	// Returns the stored count, or -1 on a miss.
+	long get(long key, int depth) {
+		int slot = slot(key, depth);
+		long stored = data[slot];
+		if ((checks[slot] ^ stored) == key && (stored & DEPTH_MASK) == depth) {
+			return stored >>> DEPTH_BITS;
+		}
+		return -1;
+	}
+	
+	void put(long key, int depth, long count) {
+		int slot = slot(key, depth);
+		long stored = (count << DEPTH_BITS) | depth;
+		data[slot] = stored;
+		checks[slot] = key ^ stored;
+	}
+	
+	private int slot(long key, int depth) {
+		return (int)(key ^ (key >>> 32) ^ (depth * 0x9E3779B9L)) & mask;
+	}
+}
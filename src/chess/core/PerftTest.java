@@ -0,0 +1,61 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.*;
+
+public class PerftTest {
+	long[] startCounts = new long[]{1, 20, 400, 8902, 197281};
+	
+	@Test
+	public void startPosition() {
+		Perft perft = new Perft(new Chessboard());
+		for (int depth = 0; depth < startCounts.length; ++depth) {
+			assertEquals("depth " + depth, startCounts[depth], perft.perft(depth));
+		}
+	}
+	
+	@Test
+	public void moveMapAgrees() {
+		Perft perft = new Perft(new Chessboard(), true);
+		assertEquals(startCounts[3], perft.perft(3));
+	}
+	
+	@Test
+	public void divide() {
+		Map<String,Long> split = new Perft(new Chessboard()).divide(3);
+		assertEquals(20, split.size());
+		assertEquals(Long.valueOf(600), split.get("e2e4"));
+		assertEquals(Long.valueOf(440), split.get("g1f3"));
+		long total = 0;
+		for (long nodes: split.values()) {total += nodes;}
+		assertEquals(startCounts[3], total);
+	}
+	
+	@Test
+	public void publishedPositions() {
+		for (Object[] position: PerftSuite.positions) {
+			Chessboard board = FEN.decode((String)position[1]);
+			long[] expected = (long[])position[2];
+			assertEquals((String)position[0], expected[2], new Perft(board).perft(3));
+			assertEquals((String)position[0], expected[1], new Perft(board, true).perft(2));
+			assertEquals((String)position[0], expected[2], new Perft(board, Perft.Generator.PSEUDO_LEGAL).perft(3));
+		}
+	}
+	
+	// Positions where MoveMap once castled through an enemy bishop and lost
+	// a pawn push to the pin on the pawn behind it.
+	@Test
+	public void moveMapRegressions() {
+		String[] fens = new String[]{
+			"r3kB1r/Pppp1p1p/1b3nbp/nP6/B1PPP3/q4N2/Pp4PP/R2Q1RK1 b kq - 1 2",
+			"r4rk1/1pp1qp1p/p1np1p2/2b1p3/2B1P1b1/P1NP1N1P/1PP1QPP1/R4RK1 b - - 0 11"
+		};
+		for (String fen: fens) {
+			Chessboard board = FEN.decode(fen);
+			assertEquals(fen, new Perft(board).divide(1).keySet(), new Perft(board, true).divide(1).keySet());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package chess.core;
+
+// Classical ray scan: one precomputed ray per square and direction, as
+// march() would walk it. The nearest blocker on each ray is found with a
+// bit scan, and the ray beyond it is cut off.
+
+class RayScanAttacks implements SlidingAttackProvider {
+	// Indexed by MoveDir ordinal, then square ordinal.
+	private long[][] rays;
+	
+	public RayScanAttacks() {
+		rays = new long[MoveDir.values().length][64];
+		for (MoveDir dir: MoveDir.values()) {
+			if (dir != MoveDir.NONE) {
+				for (BoardSquare s: BoardSquare.values()) {
+					BitBoard ray = new BitBoard();
+					MoveGenerator.march(s, dir, new BitBoard(), ray);
+					rays[dir.ordinal()][s.ordinal()] = ray.getBits();
+				}
+			}
+		}
+	}
+	
+	@Override
+	public long rookAttacks(int square, long occupied) {
+		return towardLow(MoveDir.N, square, occupied) | towardLow(MoveDir.W, square, occupied) 
+				| towardHigh(MoveDir.S, square, occupied) | towardHigh(MoveDir.E, square, occupied);
+	}
+	
+	@Override
+	public long bishopAttacks(int square, long occupied) {
+		return towardLow(MoveDir.NW, square, occupied) | towardLow(MoveDir.NE, square, occupied) 
+				| towardHigh(MoveDir.SW, square, occupied) | towardHigh(MoveDir.SE, square, occupied);
+	}
+	
+	@Override
+	public int tableBytes() {
+		return 8 * rays.length * 64;
+	}
+	
+	// Rays whose squares have lower ordinals than the start: the nearest blocker is the highest bit.
+	private long towardLow(MoveDir dir, int square, long occupied) {
+		long ray = rays[dir.ordinal()][square];
+		long blockers = ray & occupied;
+		if (blockers != 0) {
+			ray ^= rays[dir.ordinal()][63 - Long.numberOfLeadingZeros(blockers)];
+		}
+		return ray;
+	}
+	
+	// Rays whose squares have higher ordinals than the start: the nearest blocker is the lowest bit.
+	private long towardHigh(MoveDir dir, int square, long occupied) {
+		long ray = rays[dir.ordinal()][square];
+		long blockers = ray & occupied;
+		if (blockers != 0) {
+			ray ^= rays[dir.ordinal()][Long.numberOfTrailingZeros(blockers)];
+		}
+		return ray;
+	}
+}
@@ -0,0 +1,81 @@
+package chess.core;
+
+// A single mutable board for searching. Instead of allocating a successor
+// Chessboard per node, moves are applied in place and taken back in LIFO
+// order. The board returned by getBoard() changes under every makeMove()
+// and unmakeMove(); copy it with successor() before keeping it.
+//
+// Each ply also has its own move buffer, filled through a shared
+// LongMoveMap: by generateMoves(), or by the MovePicker a searcher keeps
+// for that ply. Once the buffers exist, generating moves allocates no
+// further buffers or maps.
+//
+// Started from a GameHistory, the search also sees the game's earlier
+// positions when looking for repetitions; isDraw() treats the first
+// repetition as a draw, as engines usually do.
+
+public class SearchBoard {
+	private GameHistory history;
+	private int root;
+	private int[][] moves;
+	private LongMoveMap moveMap;
+	
+	public SearchBoard(Chessboard start) {
+		this(new GameHistory(start));
+	}
+	
+	public SearchBoard(GameHistory game) {
+		this(game, false);
+	}
+	
+	// A pseudo-legal SearchBoard generates with a pseudo-legal LongMoveMap.
+	public SearchBoard(GameHistory game, boolean pseudoLegal) {
+		history = new GameHistory(game);
+		root = history.getPly();
+		moves = new int[16][PackedMove.MAX_MOVES];
+		moveMap = new LongMoveMap(pseudoLegal);
+	}
+	
+	public Chessboard getBoard() {return history.getBoard();}
+	
+	public int getPly() {return history.getPly() - root;}
+	
+	public boolean isRepetition() {return history.isRepetition();}
+	
+	// Drawn whatever follows: a repeated position, the fifty-move rule, or
+	// too little material to mate. Checkmate is not ruled out; test it first.
+	public boolean isDraw() {
+		Chessboard board = getBoard();
+		return history.isRepetition() || board.isFiftyMoveDraw() || board.hasInsufficientMaterial();
+	}
+	
+	// Fills getMoves() with the legal moves at this ply, in PackedMove form; returns how many.
+	public int generateMoves() {
+		return moveMap.makeMoves(getBoard(), getMoves());
+	}
+	
+	public int[] getMoves() {
+		if (getPly() >= moves.length) {grow();}
+		return moves[getPly()];
+	}
+	
+	public LongMoveMap getMoveMap() {return moveMap;}
+	
+	public void makeMove(Move m) {
+		history.makeMove(m);
+	}
+	
+	public void unmakeMove() {
+		if (getPly() == 0) {throw new IllegalStateException("No move to unmake.");}
+		history.unmakeMove();
+	}
+	
+	private void grow() {
+		int[][] bigger = new int[moves.length * 2][];
+		System.arraycopy(moves, 0, bigger, 0, moves.length);
+		for (int i = moves.length; i < bigger.length; ++i) {
+			bigger[i] = new int[PackedMove.MAX_MOVES];
+		}
+		moves = bigger;
+	}
+}
@@ -0,0 +1,102 @@
+package chess.core;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.*;
+
+public class SearchBoardTest {
+	String[] moves = new String[]{"e4", "c5", "Nf3", "d6", "d4", "cxd4", "c4", "dxc3", "Bb5+",
+			"Bd7", "e5", "Bxb5", "Qd3", "f5", "O-O", "Qd7", "a4", "Nc6", "axb5", "cxb2", "Nc3",
+			"bxa1=Q", "Qxf5", "a6", "Qh5+", "g6", "h3", "O-O-O"};
+	
+	@Test
+	public void makeUnmakeGame() throws IllegalMoveException {
+		Chessboard[] boards = new Chessboard[moves.length + 1];
+		boards[0] = new Chessboard();
+		SearchBoard position = new SearchBoard(boards[0]);
+		for (int i = 0; i < moves.length; ++i) {
+			Move m = Algebraic.decode(moves[i], boards[i]);
+			boards[i + 1] = boards[i].successor(m);
+			position.makeMove(m);
+			assertSame(boards[i + 1], position.getBoard(), i + 1);
+		}
+		for (int i = moves.length - 1; i >= 0; --i) {
+			position.unmakeMove();
+			assertSame(boards[i], position.getBoard(), i);
+		}
+		assertEquals(0, position.getPly());
+	}
+	
+	@Test
+	public void makeUnmakeAllReplies() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "d5", "exd5", "c5");
+		SearchBoard position = new SearchBoard(board);
+		for (Move m: board.getLegalMoves()) {
+			position.makeMove(m);
+			assertSame(board.successor(m), position.getBoard(), 1);
+			for (Move reply: position.getBoard().getLegalMoves()) {
+				position.makeMove(reply);
+				position.unmakeMove();
+			}
+			position.unmakeMove();
+			assertSame(board, position.getBoard(), 0);
+		}
+	}
+	
+	@Test
+	public void nestedPickers() throws IllegalMoveException {
+		Chessboard board = Algebraic.from("e4", "d5", "exd5", "c5");
+		SearchBoard position = new SearchBoard(board);
+		MovePicker root = new MovePicker(position.getMoves(), position.getMoveMap());
+		root.reset(board, null);
+		Set<Move> picked = new HashSet<>();
+		for (Move m = root.next(); m != null; m = root.next()) {
+			picked.add(m);
+			position.makeMove(m);
+			MovePicker replies = new MovePicker(position.getMoves(), position.getMoveMap());
+			replies.reset(position.getBoard(), null);
+			Set<Move> answered = new HashSet<>();
+			for (Move reply = replies.next(); reply != null; reply = replies.next()) {
+				answered.add(reply);
+			}
+			assertEquals(new HashSet<>(position.getBoard().getLegalMoves()), answered);
+			position.unmakeMove();
+		}
+		assertEquals(new HashSet<>(board.getLegalMoves()), picked);
+	}
+	
+	@Test
+	public void draws() throws IllegalMoveException {
+		assertTrue(new SearchBoard(FEN.decode("8/8/4k3/8/8/2B5/8/4K3 w - - 0 1")).isDraw());
+		assertTrue(new SearchBoard(FEN.decode("8/8/4k3/2b5/8/2B5/8/4K3 w - - 0 1")).isDraw());
+		assertFalse(new SearchBoard(FEN.decode("8/8/4k3/1b6/8/2B5/8/4K3 w - - 0 1")).isDraw());
+		assertFalse(new SearchBoard(FEN.decode("8/8/4k3/8/8/2N2N2/8/4K3 w - - 0 1")).isDraw());
+		assertFalse(new SearchBoard(FEN.decode("8/8/4k3/8/8/8/4P3/4K3 w - - 0 1")).isDraw());
+		
+		Chessboard board = FEN.decode("8/8/4k3/8/8/8/P7/R3K3 w - - 99 80");
+		SearchBoard position = new SearchBoard(board);
+		assertFalse(position.isDraw());
+		position.makeMove(Algebraic.decode("Ke2", board));
+		assertTrue(position.isDraw());
+		position.unmakeMove();
+		position.makeMove(Algebraic.decode("a3", board));
+		assertFalse(position.isDraw());
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void unmakeAtRoot() {
+		new SearchBoard(new Chessboard()).unmakeMove();
+	}
+	
+	void assertSame(Chessboard expected, Chessboard actual, int ply) {
+		assertEquals("ply " + ply, expected.toString(), actual.toString());
+		assertEquals("ply " + ply, expected, actual);
+		assertEquals("ply " + ply, expected.getPawnKey(), actual.getPawnKey());
+		assertEquals("ply " + ply, expected.getMaterialKey(), actual.getMaterialKey());
+		assertEquals("ply " + ply, expected.castlingRights(), actual.castlingRights());
+		assertEquals("ply " + ply, expected.getLegalMoves().size(), actual.getLegalMoves().size());
+	}
+}
@@ -0,0 +1,69 @@
+package chess.core;
+
+import java.util.ArrayList;
+
+// Compares the slider backends on the occupancies of a few reference games,
+// looking up rook and bishop attacks from every square of each position:
+// reports build time, table memory and lookups per second. The checksum
+// sums every attack set, so all backends should print the same one.
+//
+// Usage: java chess.core.SlidingAttackBenchmark [rounds]
+
+public class SlidingAttackBenchmark {
+	final static String[][] games = new String[][]{
+		{"e4", "c5", "Nf3", "d6", "d4", "cxd4", "c4", "dxc3", "Bb5+", "Bd7", "e5", "Bxb5", "Qd3", "f5", 
+			"O-O", "Qd7", "a4", "Nc6", "axb5", "cxb2", "Nc3", "bxa1=Q", "Qxf5", "a6", "Qh5+", "g6", "h3", "O-O-O"},
+		{"Na3", "d6", "h3", "Bd7", "Nb1", "Bb5", "d3", "h5", "f3", "g5", "Kd2", "g4", "c4", "Bh6+", "e3", 
+			"gxf3", "cxb5", "fxg2", "Bxg2", "Qc8", "Qxh5", "Kd7", "Qxf7", "Bxe3+", "Kxe3", "Rxh3+", "Rxh3", 
+			"Nf6", "Ke2", "c6", "bxc6+", "bxc6", "Bg5", "Nh7", "Rxh7", "Na6", "Qxe7#"},
+		{"e4", "e5", "d4", "exd4", "Qxd4", "Qh4", "e5", "Nc6", "e6", "b6", "Nc3", "Bb7", "Qxd7#"},
+		{"e4", "d6", "d4", "Qd7", "Nc3", "Qe6", "Nf3", "Bd7", "b3", "Qg4", "h3", "Qg6", "Bc4", "e6", "O-O", "Be7"}
+	};
+	
+	public static void main(String[] args) throws IllegalMoveException {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		ArrayList<Chessboard> corpus = makeCorpus();
+		System.out.println(corpus.size() + " positions, " + rounds + " rounds");
+		System.out.printf("%-12s %10s %12s %16s %18s%n", "backend", "build ms", "table bytes", "lookups/sec", "checksum");
+		for (String name: MoveGenerator.sliderNames) {
+			long start = System.nanoTime();
+			SlidingAttackProvider sliders = MoveGenerator.makeSliders(name);
+			double buildMs = (System.nanoTime() - start) / 1e6;
+			
+			run(sliders, corpus, rounds / 10);
+			start = System.nanoTime();
+			long checksum = run(sliders, corpus, rounds);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			long lookups = 128L * corpus.size() * rounds;
+			System.out.printf("%-12s %10.1f %12d %16.0f %18s%n", name, buildMs, sliders.tableBytes(), lookups / seconds,
+					Long.toHexString(checksum));
+		}
+	}
+	
+	static ArrayList<Chessboard> makeCorpus() throws IllegalMoveException {
+		ArrayList<Chessboard> corpus = new ArrayList<Chessboard>();
+		for (String[] game: games) {
+			Chessboard board = new Chessboard();
+			corpus.add(board);
+			for (String move: game) {
+				board = Algebraic.successor(board, move);
+				corpus.add(board);
+			}
+		}
+		return corpus;
+	}
+	
+	static long run(SlidingAttackProvider sliders, ArrayList<Chessboard> corpus, int rounds) {
+		long checksum = 0;
+		for (int r = 0; r < rounds; ++r) {
+			for (Chessboard board: corpus) {
+				long occupied = board.occupancy();
+				for (int sq = 0; sq < 64; ++sq) {
+					checksum += sliders.rookAttacks(sq, occupied);
+					checksum += sliders.bishopAttacks(sq, occupied);
+				}
+			}
+		}
+		return checksum;
+	}
+}
@@ -0,0 +1,13 @@
+package chess.core;
+
+// Rook and bishop attack sets for a slider on square (a BoardSquare ordinal)
+// given the full board occupancy. Attacks include the first blocker in each
+// direction, whatever its color.
+
+interface SlidingAttackProvider {
+	public long rookAttacks(int square, long occupied);
+	public long bishopAttacks(int square, long occupied);
+	
+	// Approximate bytes held by lookup tables.
+	public int tableBytes();
+}
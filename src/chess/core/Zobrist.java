@@ -0,0 +1,101 @@
+package chess.core;
+
+import chess.hash.XORShiftRandom;
+
+// Reference:
+//
+// A. L. Zobrist, "A New Hashing Method with Application for Game Playing",
+// Technical Report #88, University of Wisconsin, 1970.
+//
+// Keys are XORed in and out as pieces move, so a successor board derives
+// its key from its parent's key in a handful of operations.
+
+class Zobrist {
+	final static int WHITE_KINGSIDE = 1, WHITE_QUEENSIDE = 2, BLACK_KINGSIDE = 4, BLACK_QUEENSIDE = 8;
+	final static int MAX_COUNT = 16;
+
+	private final static long[][][] pieces = new long[PieceColor.values().length][ChessPiece.values().length][BoardSquare.values().length];
+	private final static long[][][] material = new long[PieceColor.values().length][ChessPiece.values().length][MAX_COUNT + 1];
+	private final static long[] castling = new long[16];
+	private final static long[] enPassantFile = new long[8];
+	private final static long blackToMove;
+
+	static {
+		XORShiftRandom random = new XORShiftRandom(0x9E3779B97F4A7C15L);
+		for (PieceColor color: PieceColor.values()) {
+			for (ChessPiece piece: ChessPiece.values()) {
+				if (piece != ChessPiece.EMPTY) {
+					for (BoardSquare s: BoardSquare.values()) {
+						pieces[color.ordinal()][piece.ordinal()][s.ordinal()] = random.nextLong();
+					}
+					for (int count = 0; count <= MAX_COUNT; ++count) {
+						material[color.ordinal()][piece.ordinal()][count] = random.nextLong();
+					}
+				}
+			}
+		}
+		for (int i = 0; i < castling.length; ++i) {
+			castling[i] = random.nextLong();
+		}
+		for (int i = 0; i < enPassantFile.length; ++i) {
+			enPassantFile[i] = random.nextLong();
+		}
+		blackToMove = random.nextLong();
+	}
+
+	static long piece(PieceColor color, ChessPiece piece, BoardSquare s) {
+		return pieces[color.ordinal()][piece.ordinal()][s.ordinal()];
+	}
+
+	static long material(PieceColor color, ChessPiece piece, int count) {
+		return material[color.ordinal()][piece.ordinal()][count];
+	}
+
+	static long castling(int rights) {
+		return castling[rights];
+	}
+
+	static long enPassant(int file) {
+		return file < 0 ? 0 : enPassantFile[file];
+	}
+
+	static long turn(PieceColor mover) {
+		return mover == PieceColor.BLACK ? blackToMove : 0;
+	}
+
+	static long keyOf(Chessboard board) {
+		long key = turn(board.getMoverColor()) ^ castling(board.castlingRights()) ^ enPassant(board.enPassantFile());
+		for (PieceColor color: PieceColor.values()) {
+			for (ChessPiece piece: ChessPiece.values()) {
+				if (piece != ChessPiece.EMPTY) {
+					for (BoardSquare s: board.getAllOf(color, piece)) {
+						key ^= piece(color, piece, s);
+					}
+				}
+			}
+		}
+		return key;
+	}
+
+	static long pawnKeyOf(Chessboard board) {
+		long key = 0;
+		for (PieceColor color: PieceColor.values()) {
+			for (BoardSquare s: board.getAllOf(color, ChessPiece.PAWN)) {
+				key ^= piece(color, ChessPiece.PAWN, s);
+			}
+		}
+		return key;
+	}
+
+	static long materialKeyOf(Chessboard board) {
+		long key = 0;
+		for (PieceColor color: PieceColor.values()) {
+			for (ChessPiece piece: ChessPiece.values()) {
+				if (piece != ChessPiece.EMPTY) {
+					key ^= material(color, piece, board.getAllOf(color, piece).numPieces());
+				}
+			}
+		}
+		return key;
+	}
+}
@@ -26,6 +26,7 @@ public class BoardPanel extends JPanel {
 	final static int BOUNDARY_WIDTH = 40;
 	
 	private Chessboard board;
+	private GameHistory game;
 	private EnumMap<PieceColor,EnumMap<ChessPiece,BufferedImage>> images;
 	private int xStart, yStart, xEnd, yEnd, width, height, wSquare, hSquare;
 	
@@ -55,14 +56,18 @@ public class BoardPanel extends JPanel {
 	
 	public void resetBoard() {
 		board = new Chessboard();
+		game = new GameHistory(board);
 		repaint();
 	}
 	
 	public void resetBoardWith(String... moves) {
 		try {
 			board = new Chessboard();
+			game = new GameHistory(board);
 			for (String move: moves) {
-				board = Algebraic.successor(board, move);
+				Move m = Algebraic.decode(move, board);
+				board = board.successor(m);
+				game.makeMove(m);
 			}
 		} catch (IllegalMoveException ime) {
 			JOptionPane.showMessageDialog(this, ime.getMessage());
@@ -84,6 +89,9 @@ public class BoardPanel extends JPanel {
 	
 	public Chessboard getBoard() {return board;}
 	
+	// The moves played so far, for searches that look for repetitions
+	public GameHistory getGame() {return game;}
+	
 	public PieceColor mover() {
 		return board.getMoverColor();
 	}
@@ -91,6 +99,7 @@ public class BoardPanel extends JPanel {
 	public void move(Move m) {
 		String moveStr = Algebraic.encode(m, board);
 		board = board.successor(m);
+		game.makeMove(m);
 		repaint();
 		for (BoardMoveListener bml: listeners) {bml.moveMade(moveStr);}
 	}
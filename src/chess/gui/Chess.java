@@ -178,7 +178,7 @@ public class Chess extends JFrame implements BoardMoveListener {
 				BoardEval be = evaluators.newInstanceOf(evalChoosers.get(board.mover()).getSelectedItem().toString());
 				int depth = Integer.parseInt(depthChoosers.get(board.mover()).getSelectedItem().toString());
 				running = true;
-				MoveScore best = s.findBestMove(board.getBoard(), be, depth);
+				MoveScore best = s.findBestMove(board.getGame(), be, depth);
 				board.move(best.getMove());
 			} catch (InstantiationException e) {
 				// TODO Auto-generated catch block